@@ -0,0 +1,125 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of building automata with NFA combinators and compiling them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class ConstructionBenchmark {
+    private static final String SYLLABLE_PATTERN = "((p|t|k|s|n)(a|e|i|o|u))*";
+    private static final List<String> ENVIRONMENT_PARTS = List.of(
+            "[aeiou]", "[ptksn]", "#", "(s|n)", "[ptk]?", "([ptksn][aeiou])*", "[aeiou]+"
+    );
+
+    private List<String> ruleBasePatterns;
+
+    private NFAProgram syllableProgram;
+    private DFA syllableDFA;
+    private PatternParser parser;
+    private PatternCache cache;
+
+    @Setup
+    public void setUp() {
+        final var syllablePattern = Lexicons.newSyllablePattern();
+        syllableProgram = syllablePattern.toProgram();
+        syllableDFA = syllablePattern.toDFA();
+        parser = new PatternParser();
+        cache = new PatternCache(parser, 16);
+        cache.compile(SYLLABLE_PATTERN);
+
+        // environments of a rule base: combinations of a few common parts, with repetitions
+        final var random = new Random(42);
+        ruleBasePatterns = new ArrayList<>();
+        for (int i = 0; i < 512; i++) {
+            final var pattern = new StringBuilder();
+            for (int part = random.nextInt(3); part >= 0; part--) {
+                pattern.append(ENVIRONMENT_PARTS.get(random.nextInt(ENVIRONMENT_PARTS.size())));
+            }
+            ruleBasePatterns.add(pattern.toString());
+        }
+    }
+
+    @Benchmark
+    public NFA buildSyllablePattern() {
+        return Lexicons.newSyllablePattern();
+    }
+
+    @Benchmark
+    public NFA buildNestedClosurePattern() {
+        return Lexicons.newNestedClosurePattern(16);
+    }
+
+    @Benchmark
+    public NFA buildNestedUnionPattern() {
+        return Lexicons.newNestedUnionPattern(16);
+    }
+
+    @Benchmark
+    public NFA parseSyllablePattern() {
+        return parser.parse(SYLLABLE_PATTERN);
+    }
+
+    @Benchmark
+    public NFAProgram compileCachedSyllablePattern() {
+        return cache.compile(SYLLABLE_PATTERN);
+    }
+
+    @Benchmark
+    public NFAProgram buildAndCompileSyllablePattern() {
+        // compiled forms are cached by NFA, so the automaton has to be built again
+        return Lexicons.newSyllablePattern().toProgram();
+    }
+
+    @Benchmark
+    public List<NFAProgram> compileRuleBase() {
+        return compileAll(new PatternParser());
+    }
+
+    @Benchmark
+    public List<NFAProgram> compileRuleBaseWithSharing() {
+        return compileAll(new PatternParser(Set.of(), new NFAFactory()));
+    }
+
+    private List<NFAProgram> compileAll(PatternParser ruleBaseParser) {
+        final var programs = new ArrayList<NFAProgram>(ruleBasePatterns.size());
+        for (var pattern : ruleBasePatterns) {
+            programs.add(ruleBaseParser.parse(pattern).toProgram());
+        }
+        return programs;
+    }
+
+    @Benchmark
+    public CompiledAutomaton compileAutomaton() {
+        return CompiledAutomaton.of(syllableProgram);
+    }
+
+    @Benchmark
+    public DFA toDFA() {
+        return DFA.fromProgram(syllableProgram);
+    }
+
+    @Benchmark
+    public DFA minimize() {
+        return syllableDFA.minimize();
+    }
+}
@@ -0,0 +1,68 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing a single-pass search for all matches in a word with matching a prefix at each offset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class FindAllBenchmark {
+    @Param({"16", "64", "256"})
+    public int wordLength;
+
+    private int[][] words;
+    private NFAProgram program;
+
+    @Setup
+    public void setUp() {
+        words = Lexicons.encode(Lexicons.newLexicon(Lexicons.LEXICON_SIZE, wordLength, 42));
+        // a vowel followed by a consonant cluster
+        program = NFA.newConcatenateNFA(
+                Lexicons.newClassPattern(Lexicons.VOWELS),
+                NFA.newOneOrMoreNFA(Lexicons.newClassPattern(Lexicons.CONSONANTS))
+        ).toProgram();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void prefixAtEachOffset(Blackhole blackhole) {
+        for (var word : words) {
+            var position = 0;
+            while (position < word.length) {
+                final var span = program.getMatchingPrefix(word, position, word.length);
+                if (span.isMatchDetected() && span.getLength() > 0) {
+                    blackhole.consume(span);
+                    position = span.getEnd();
+                } else {
+                    position++;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void findAll(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(program.findAll(word, 0, word.length));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing matching a lexicon stored in a trie with matching its words one at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class LexiconTrieBenchmark {
+    @Param({"8", "32"})
+    public int wordLength;
+
+    private List<List<String>> lexicon;
+    private int[][] words;
+    private LexiconTrie trie;
+    private CompiledAutomaton automaton;
+
+    @Setup
+    public void setUp() {
+        lexicon = Lexicons.newLexicon(16 * Lexicons.LEXICON_SIZE, wordLength, 42);
+        words = Lexicons.encode(lexicon);
+        trie = LexiconTrie.of(lexicon);
+        automaton = Lexicons.newSyllablePattern().compile();
+    }
+
+    @Benchmark
+    public BitSet trieGetAcceptedWordIndexes() {
+        return trie.getAcceptedWordIndexes(automaton);
+    }
+
+    @Benchmark
+    public BitSet trieGetWordIndexesWithMatchingPrefix() {
+        return trie.getWordIndexesWithMatchingPrefix(automaton);
+    }
+
+    @Benchmark
+    public BitSet loopIsMatch() {
+        final var result = new BitSet(words.length);
+        for (int i = 0; i < words.length; i++) {
+            if (automaton.isMatch(words[i], 0, words[i].length)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public LexiconTrie buildTrie() {
+        return LexiconTrie.of(lexicon);
+    }
+}
@@ -0,0 +1,105 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic lexicons and patterns shared by the benchmarks.
+ */
+final class Lexicons {
+    static final List<String> CONSONANTS = List.of("p", "t", "k", "s", "n");
+    static final List<String> VOWELS = List.of("a", "e", "i", "o", "u");
+    static final int LEXICON_SIZE = 1024;
+
+    private Lexicons() {
+    }
+
+    /**
+     * Generate a lexicon in which about half of the words consist of consonant-vowel syllables and the other half
+     * are random sequences of the same symbols.
+     *
+     * @param size the number of words.
+     * @param wordLength the number of symbols in each word.
+     * @param seed a seed of the random number generator.
+     * @return a list of words.
+     */
+    static List<List<String>> newLexicon(int size, int wordLength, long seed) {
+        final var random = new Random(seed);
+        final var lexicon = new ArrayList<List<String>>(size);
+        for (int i = 0; i < size; i++) {
+            final var syllabic = random.nextBoolean();
+            final var word = new ArrayList<String>(wordLength);
+            for (int j = 0; j < wordLength; j++) {
+                final var inventory = syllabic ? (j % 2 == 0 ? CONSONANTS : VOWELS) : random.nextBoolean() ? CONSONANTS : VOWELS;
+                word.add(inventory.get(random.nextInt(inventory.size())));
+            }
+            lexicon.add(word);
+        }
+        return lexicon;
+    }
+
+    static int[][] encode(List<List<String>> lexicon) {
+        final var alphabet = Alphabet.getDefault();
+        return lexicon.stream().map(alphabet::intern).toArray(int[][]::new);
+    }
+
+    /**
+     * Create an automaton matching words consisting of consonant-vowel syllables.
+     *
+     * @return an instance of NFA
+     */
+    static NFA newSyllablePattern() {
+        return NFA.newKleeneClosureNFA(NFA.newConcatenateNFA(newClassPattern(CONSONANTS), newClassPattern(VOWELS)));
+    }
+
+    /**
+     * Create an automaton matching words consisting of consonant-vowel syllables, using symbol classes.
+     *
+     * @return an instance of NFA
+     */
+    static NFA newSyllableClassPattern() {
+        return NFA.newKleeneClosureNFA(NFA.newConcatenateNFA(
+                NFA.newSymbolClassNFA(Set.copyOf(CONSONANTS)),
+                NFA.newSymbolClassNFA(Set.copyOf(VOWELS))
+        ));
+    }
+
+    static NFA newClassPattern(List<String> symbols) {
+        final var alternatives = new ArrayList<NFA>();
+        for (var symbol : symbols) {
+            alternatives.add(NFA.newSymbolNFA(symbol));
+        }
+        return NFA.newUnionNFA(alternatives);
+    }
+
+    /**
+     * Create an automaton for a pattern in which closures are nested given number of times, like ((a*)*)*.
+     *
+     * @param depth the number of nested closures.
+     * @return an instance of NFA
+     */
+    static NFA newNestedClosurePattern(int depth) {
+        var automaton = NFA.newSymbolNFA("a");
+        for (int i = 0; i < depth; i++) {
+            automaton = NFA.newKleeneClosureNFA(automaton);
+        }
+        return automaton;
+    }
+
+    /**
+     * Create an automaton for a pattern in which closures of unions are nested given number of times,
+     * like (a|(a|a*)*)*.
+     *
+     * @param depth the number of nested unions.
+     * @return an instance of NFA
+     */
+    static NFA newNestedUnionPattern(int depth) {
+        var automaton = NFA.newSymbolNFA("a");
+        for (int i = 0; i < depth; i++) {
+            automaton = NFA.newKleeneClosureNFA(NFA.newUnionNFA(NFA.newSymbolNFA("a"), automaton));
+        }
+        return automaton;
+    }
+}
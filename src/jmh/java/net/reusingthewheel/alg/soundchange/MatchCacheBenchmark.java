@@ -0,0 +1,128 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of matching a Zipfian stream of words, with and without a cache of match results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class MatchCacheBenchmark {
+    private static final int VOCABULARY_SIZE = 16 * 1024;
+    private static final int STREAM_LENGTH = 64 * 1024;
+
+    @Param({"16", "64"})
+    public int wordLength;
+
+    @Param({"1024", "4096"})
+    public int cacheSize;
+
+    @Param({"true", "false"})
+    public boolean deterministic;
+
+    private int[][] stream;
+    private CompiledAutomaton automaton;
+    private MatchCache cache;
+
+    @Setup
+    public void setUp() {
+        final var vocabulary = Lexicons.encode(Lexicons.newLexicon(VOCABULARY_SIZE, wordLength, 42));
+        // word forms ranked by frequency, the one of rank r occurring with probability proportional to 1 / r
+        final var cumulativeFrequencies = new double[VOCABULARY_SIZE];
+        var sum = 0.0;
+        for (int rank = 0; rank < VOCABULARY_SIZE; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulativeFrequencies[rank] = sum;
+        }
+        final var random = new Random(42);
+        stream = new int[STREAM_LENGTH][];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            final var rank = Arrays.binarySearch(cumulativeFrequencies, random.nextDouble() * sum);
+            stream[i] = vocabulary[Math.min(rank < 0 ? -rank - 1 : rank, VOCABULARY_SIZE - 1)];
+        }
+
+        // the lexicon is random, so the automaton is matched against a prefix of each word
+        automaton = deterministic ? Lexicons.newSyllablePattern().compile()
+                : CompiledAutomaton.of(newMorphemePattern().toProgram(), 0);
+        cache = new MatchCache(cacheSize);
+    }
+
+    /**
+     * Create a pattern of sequences of 64 random morphemes, too large for the bit-parallel engine,
+     * so it is matched by simulating the NFA unless it is determinized.
+     */
+    private static NFA newMorphemePattern() {
+        final var morphemes = new ArrayList<NFA>();
+        for (var morpheme : Lexicons.newLexicon(64, 4, 7)) {
+            var automaton = NFA.newSymbolNFA(morpheme.get(morpheme.size() - 1));
+            for (int i = morpheme.size() - 2; i >= 0; i--) {
+                automaton = NFA.newConcatenateNFA(NFA.newSymbolNFA(morpheme.get(i)), automaton);
+            }
+            morphemes.add(automaton);
+        }
+        return NFA.newKleeneClosureNFA(NFA.newUnionNFA(morphemes));
+    }
+
+    /**
+     * A position in the stream of words, separate for each thread.
+     */
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class Position {
+        private int next;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void uncachedGetMatchingPrefix(Position position, Blackhole blackhole) {
+        for (int i = 0; i < Lexicons.LEXICON_SIZE; i++) {
+            final var word = nextWord(position);
+            blackhole.consume(automaton.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void cachedGetMatchingPrefix(Position position, Blackhole blackhole) {
+        for (int i = 0; i < Lexicons.LEXICON_SIZE; i++) {
+            final var word = nextWord(position);
+            blackhole.consume(cache.getMatchingPrefix(automaton, word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void cachedGetMatchingPrefixConcurrently(Position position, Blackhole blackhole) {
+        for (int i = 0; i < Lexicons.LEXICON_SIZE; i++) {
+            final var word = nextWord(position);
+            blackhole.consume(cache.getMatchingPrefix(automaton, word, 0, word.length));
+        }
+    }
+
+    private int[] nextWord(Position position) {
+        final var word = stream[position.next];
+        position.next = (position.next + 1) % STREAM_LENGTH;
+        return word;
+    }
+}
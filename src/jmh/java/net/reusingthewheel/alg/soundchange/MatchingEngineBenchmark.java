@@ -0,0 +1,205 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing the matching engines on the same automaton and lexicon.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class MatchingEngineBenchmark {
+    @Param({"4", "16", "64"})
+    public int wordLength;
+
+    private int[][] words;
+    private NFAProgram program;
+    private NFAProgram classProgram;
+    private CompiledAutomaton compiledAutomaton;
+    private Matcher matcher;
+    private DFA dfa;
+    private DFA minimizedDFA;
+    private LazyDFA lazyDFA;
+    private BitParallelNFA bitParallelNFA;
+    private Path mappedDFAFile;
+    private MappedDFA mappedDFA;
+    private TaggedAutomaton taggedAutomaton;
+
+    @Setup
+    public void setUp() throws IOException {
+        words = Lexicons.encode(Lexicons.newLexicon(Lexicons.LEXICON_SIZE, wordLength, 42));
+
+        final var automaton = Lexicons.newSyllablePattern();
+        program = automaton.toProgram();
+        matcher = program.newMatcher();
+        classProgram = Lexicons.newSyllableClassPattern().toProgram();
+        compiledAutomaton = automaton.compile();
+        dfa = automaton.toDFA();
+        minimizedDFA = dfa.minimize();
+        lazyDFA = LazyDFA.withStateLimit(program, 64);
+        bitParallelNFA = BitParallelNFA.fromProgram(program);
+        mappedDFAFile = Files.createTempFile("matching-engine-benchmark", ".dfa");
+        minimizedDFA.save(mappedDFAFile);
+        mappedDFA = MappedDFA.load(mappedDFAFile);
+        taggedAutomaton = TaggedAutomaton.of(List.of(
+                Lexicons.newSyllablePattern(),
+                NFA.newKleeneClosureNFA(Lexicons.newClassPattern(Lexicons.VOWELS)),
+                NFA.newConcatenateNFA(
+                        Lexicons.newClassPattern(Lexicons.CONSONANTS),
+                        NFA.newKleeneClosureNFA(Lexicons.newClassPattern(Lexicons.VOWELS))
+                )
+        ));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(mappedDFAFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void programIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(program.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void programGetMatchingPrefix(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(program.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void classProgramIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(classProgram.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void matcherFeed(Blackhole blackhole) {
+        for (var word : words) {
+            matcher.reset();
+            for (var symbol : word) {
+                if (!matcher.feed(symbol)) {
+                    break;
+                }
+            }
+            blackhole.consume(matcher.isAccepting());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void dfaIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(dfa.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void minimizedDFAIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(minimizedDFA.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void compiledAutomatonIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(compiledAutomaton.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void compiledAutomatonGetMatchingPrefix(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(compiledAutomaton.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void lazyDFAIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(lazyDFA.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void lazyDFAGetMatchingPrefix(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(lazyDFA.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void bitParallelNFAIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(bitParallelNFA.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void bitParallelNFAGetMatchingPrefix(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(bitParallelNFA.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void mappedDFAIsMatch(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(mappedDFA.isMatch(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void mappedDFAGetMatchingPrefix(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(mappedDFA.getMatchingPrefix(word, 0, word.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void taggedAutomatonGetMatchingAutomata(Blackhole blackhole) {
+        for (var word : words) {
+            blackhole.consume(taggedAutomaton.getMatchingAutomata(word, 0, word.length));
+        }
+    }
+}
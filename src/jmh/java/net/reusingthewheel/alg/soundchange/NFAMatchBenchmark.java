@@ -0,0 +1,56 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of matching words of a synthetic lexicon with NFA.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class NFAMatchBenchmark {
+    @Param({"4", "16", "64"})
+    public int wordLength;
+
+    private NFA automaton;
+    private List<List<String>> lexicon;
+
+    @Setup
+    public void setUp() {
+        automaton = Lexicons.newSyllablePattern();
+        lexicon = Lexicons.newLexicon(Lexicons.LEXICON_SIZE, wordLength, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void isMatch(Blackhole blackhole) {
+        for (var word : lexicon) {
+            blackhole.consume(automaton.isMatch(word));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Lexicons.LEXICON_SIZE)
+    public void getMatchingPrefix(Blackhole blackhole) {
+        for (var word : lexicon) {
+            blackhole.consume(automaton.getMatchingPrefix(word));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of matching with patterns consisting of deeply nested closures and unions, which create long chains
+ * and cycles of empty transitions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class PathologicalPatternBenchmark {
+    private static final int WORD_LENGTH = 32;
+
+    @Param({"2", "8", "32"})
+    public int depth;
+
+    private NFA nestedClosure;
+    private NFA nestedUnion;
+    private NFAProgram nestedClosureProgram;
+    private NFAProgram nestedUnionProgram;
+    private DFA nestedUnionDFA;
+    private List<String> word;
+    private int[] encodedWord;
+
+    @Setup
+    public void setUp() {
+        nestedClosure = Lexicons.newNestedClosurePattern(depth);
+        nestedUnion = Lexicons.newNestedUnionPattern(depth);
+        nestedClosureProgram = nestedClosure.toProgram();
+        nestedUnionProgram = nestedUnion.toProgram();
+        nestedUnionDFA = nestedUnion.toDFA();
+
+        // a run of symbols the patterns keep matching, followed by one they reject
+        word = new ArrayList<>(Collections.nCopies(WORD_LENGTH - 1, "a"));
+        word.add("b");
+        encodedWord = Alphabet.getDefault().intern(word);
+    }
+
+    @Benchmark
+    public boolean nestedClosureNFAIsMatch() {
+        return nestedClosure.isMatch(word);
+    }
+
+    @Benchmark
+    public boolean nestedUnionNFAIsMatch() {
+        return nestedUnion.isMatch(word);
+    }
+
+    @Benchmark
+    public MatchSpan nestedClosureProgramGetMatchingPrefix() {
+        return nestedClosureProgram.getMatchingPrefix(encodedWord, 0, encodedWord.length);
+    }
+
+    @Benchmark
+    public MatchSpan nestedUnionProgramGetMatchingPrefix() {
+        return nestedUnionProgram.getMatchingPrefix(encodedWord, 0, encodedWord.length);
+    }
+
+    @Benchmark
+    public boolean nestedUnionDFAIsMatch() {
+        return nestedUnionDFA.isMatch(encodedWord, 0, encodedWord.length);
+    }
+
+    @Benchmark
+    public DFA nestedUnionToDFA() {
+        return DFA.fromProgram(nestedUnionProgram);
+    }
+}
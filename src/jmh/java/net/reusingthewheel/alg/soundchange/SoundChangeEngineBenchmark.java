@@ -0,0 +1,53 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of applying a set of sound change rules to a synthetic lexicon.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class SoundChangeEngineBenchmark {
+    @Param({"8", "32"})
+    public int wordLength;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public SoundChangeEngine.ExecutionMode mode;
+
+    private SoundChangeEngine engine;
+    private List<List<String>> lexicon;
+
+    @Setup
+    public void setUp() {
+        final var parser = new PatternParser();
+        final var vowel = "a|e|i|o|u";
+        engine = new SoundChangeEngine(List.of(
+                SoundChangeRule.of(parser.parse("p|t|k"), List.of("f"), parser.parse(vowel), parser.parse(vowel)),
+                SoundChangeRule.of(parser.parse("n"), List.of(), null, parser.parse("#")),
+                SoundChangeRule.of(parser.parse("s"), List.of("h"), parser.parse("#"), null),
+                SoundChangeRule.of(parser.parse("e|i"), List.of("i"), parser.parse("k|s"), null)
+        ));
+        lexicon = Lexicons.newLexicon(Lexicons.LEXICON_SIZE, wordLength, 42);
+    }
+
+    @Benchmark
+    public SoundChangeBatchResult applyAll() {
+        return engine.applyAll(lexicon, mode);
+    }
+}
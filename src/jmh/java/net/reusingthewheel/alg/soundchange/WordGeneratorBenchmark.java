@@ -0,0 +1,71 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of generating words accepted by an automaton.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class WordGeneratorBenchmark {
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"8", "32"})
+    public int maxLength;
+
+    private CompiledAutomaton automaton;
+    private WordGenerator generator;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        automaton = Lexicons.newSyllablePattern().compile();
+        generator = WordGenerator.of(automaton, maxLength);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sampleSymbols(Blackhole blackhole) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(generator.sampleSymbols(random));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void enumerateSymbols(Blackhole blackhole) {
+        final var words = generator.enumerateSymbols();
+        for (int i = 0; i < BATCH_SIZE && words.hasNext(); i++) {
+            blackhole.consume(words.next());
+        }
+    }
+
+    @Benchmark
+    public long sampleInParallel() {
+        return generator.samples(16 * BATCH_SIZE, random.split()).parallel().count();
+    }
+
+    @Benchmark
+    public WordGenerator buildGenerator() {
+        return WordGenerator.of(automaton, maxLength);
+    }
+}
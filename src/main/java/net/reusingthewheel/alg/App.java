@@ -3,12 +3,316 @@
  */
 package net.reusingthewheel.alg;
 
+import net.reusingthewheel.alg.soundchange.Alphabet;
+import net.reusingthewheel.alg.soundchange.MatchCache;
+import net.reusingthewheel.alg.soundchange.NFAFactory;
+import net.reusingthewheel.alg.soundchange.PatternCache;
+import net.reusingthewheel.alg.soundchange.PatternParser;
+import net.reusingthewheel.alg.soundchange.SoundChangeEngine;
+import net.reusingthewheel.alg.soundchange.SoundChangeRuleParser;
+import net.reusingthewheel.alg.soundchange.SymbolTokenizer;
+import net.reusingthewheel.alg.soundchange.WordReader;
+import net.reusingthewheel.alg.soundchange.WordWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A command line tool applying sound change rules to word lists.
+ *
+ * Words are streamed from the input files to the output file in batches of a fixed size, so memory use depends
+ * on the size of a batch rather than on the size of the input. Each batch is processed in parallel. The input
+ * files are processed in order and their words are written to the output in the same order, one per line.
+ */
 public class App {
-    public String getGreeting() {
-        return "Hello world.";
+    static final String USAGE = "Usage: App [--phonemes=<phoneme>,...] [--charset=<name>] [--batch-size=<words>]"
+            + " [--match-cache-size=<results>] [--sequential] <rule file> <output file> <word list file>...";
+    static final int DEFAULT_BATCH_SIZE = 8192;
+    private static final int PATTERN_CACHE_SIZE = 1024;
+
+    private final Options options;
+
+    App(Options options) {
+        this.options = options;
     }
 
     public static void main(String[] args) {
-        System.out.println(new App().getGreeting());
+        final var status = run(args, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Run the tool.
+     *
+     * @param args command line arguments.
+     * @param out a stream to print the report of the run to.
+     * @param err a stream to print errors to.
+     * @return the exit status: 0 on success, 1 if processing failed, 2 if the arguments are not valid.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        final Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            out.println(new App(options).process());
+            return 0;
+        } catch (NoSuchFileException e) {
+            err.println("Error: no such file: " + e.getFile());
+            return 1;
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Apply the rules to all input files.
+     *
+     * @return a report of the run.
+     * @throws IOException if a file cannot be read or written.
+     * @throws IllegalArgumentException if the rules are not valid.
+     */
+    Report process() throws IOException {
+        final var alphabet = Alphabet.getDefault();
+        // the factory returns a single automaton, compiled once, for structurally equal patterns of the rules
+        final var factory = new NFAFactory();
+        final var patternCache = new PatternCache(new PatternParser(options.phonemes, factory), PATTERN_CACHE_SIZE);
+        final var ruleParser = new SoundChangeRuleParser(patternCache);
+        final SoundChangeEngine engine;
+        try (var reader = Files.newBufferedReader(options.rules, options.charset)) {
+            // contexts too large to be determinized are checked through the cache, if there is one
+            engine = new SoundChangeEngine(ruleParser.parseRules(reader),
+                    options.matchCacheSize > 0 ? new MatchCache(options.matchCacheSize) : null);
+        }
+        final var mode = options.sequential ? SoundChangeEngine.ExecutionMode.SEQUENTIAL
+                : SoundChangeEngine.ExecutionMode.PARALLEL;
+
+        resetPeakHeapUsage();
+        final var startTime = System.nanoTime();
+        var wordCount = 0L;
+        final var batch = new int[options.batchSize][];
+        final var tokenizer = new SymbolTokenizer(alphabet, options.phonemes);
+        try (var writer = WordWriter.create(options.output, options.charset, alphabet)) {
+            for (var input : options.inputs) {
+                try (var reader = WordReader.open(input, options.charset, tokenizer)) {
+                    int count;
+                    while ((count = reader.readWords(batch)) > 0) {
+                        for (var word : engine.applyAll(batch, 0, count, mode)) {
+                            writer.writeWord(word);
+                        }
+                        wordCount += count;
+                    }
+                }
+            }
+        }
+        return new Report(wordCount, System.nanoTime() - startTime, getPeakHeapUsage(), factory.getNodeCount(),
+                factory.getReuseCount());
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakHeapUsage() {
+        var peak = 0L;
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Settings of a run, parsed from command line arguments.
+     */
+    static final class Options {
+        private final Path rules;
+        private final Path output;
+        private final List<Path> inputs;
+        private final Set<String> phonemes;
+        private final Charset charset;
+        private final int batchSize;
+        private final int matchCacheSize;
+        private final boolean sequential;
+
+        private Options(Path rules, Path output, List<Path> inputs, Set<String> phonemes, Charset charset,
+                        int batchSize, int matchCacheSize, boolean sequential) {
+            this.rules = rules;
+            this.output = output;
+            this.inputs = inputs;
+            this.phonemes = phonemes;
+            this.charset = charset;
+            this.batchSize = batchSize;
+            this.matchCacheSize = matchCacheSize;
+            this.sequential = sequential;
+        }
+
+        /**
+         * Parse command line arguments.
+         *
+         * @param args command line arguments.
+         * @return an instance of Options
+         * @throws IllegalArgumentException if the arguments are not valid.
+         */
+        static Options parse(String[] args) {
+            final var phonemes = new LinkedHashSet<String>();
+            var charset = StandardCharsets.UTF_8;
+            var batchSize = DEFAULT_BATCH_SIZE;
+            var matchCacheSize = 0;
+            var sequential = false;
+            final var paths = new ArrayList<Path>();
+
+            for (var arg : args) {
+                if (arg.startsWith("--phonemes=")) {
+                    for (var phoneme : getValue(arg).split(",")) {
+                        if (!phoneme.isBlank()) {
+                            phonemes.add(phoneme.strip());
+                        }
+                    }
+                } else if (arg.startsWith("--charset=")) {
+                    try {
+                        charset = Charset.forName(getValue(arg));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unsupported charset: " + getValue(arg), e);
+                    }
+                } else if (arg.startsWith("--batch-size=")) {
+                    batchSize = parseBatchSize(getValue(arg));
+                } else if (arg.startsWith("--match-cache-size=")) {
+                    matchCacheSize = parseMatchCacheSize(getValue(arg));
+                } else if (arg.equals("--sequential")) {
+                    sequential = true;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    paths.add(Path.of(arg));
+                }
+            }
+
+            if (paths.size() < 3) {
+                throw new IllegalArgumentException("Expected a rule file, an output file and at least one word list");
+            }
+            return new Options(paths.get(0), paths.get(1), List.copyOf(paths.subList(2, paths.size())),
+                    Set.copyOf(phonemes), charset, batchSize, matchCacheSize, sequential);
+        }
+
+        private static String getValue(String arg) {
+            return arg.substring(arg.indexOf('=') + 1);
+        }
+
+        private static int parseBatchSize(String value) {
+            try {
+                final var batchSize = Integer.parseInt(value);
+                if (batchSize > 0) {
+                    return batchSize;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("The batch size must be a positive integer, got " + value);
+        }
+
+        private static int parseMatchCacheSize(String value) {
+            try {
+                final var matchCacheSize = Integer.parseInt(value);
+                if (matchCacheSize >= 0) {
+                    return matchCacheSize;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("The match cache size must be a non-negative integer, got " + value);
+        }
+    }
+
+    /**
+     * A summary of a run.
+     */
+    static final class Report {
+        private final long wordCount;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+        private final int nodeCount;
+        private final long reuseCount;
+
+        Report(long wordCount, long elapsedNanos, long peakHeapBytes, int nodeCount, long reuseCount) {
+            this.wordCount = wordCount;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.nodeCount = nodeCount;
+            this.reuseCount = reuseCount;
+        }
+
+        long getWordCount() {
+            return wordCount;
+        }
+
+        /**
+         * Get the throughput of the run, including reading and writing the words.
+         *
+         * @return the number of words processed per second.
+         */
+        double getWordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : wordCount * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Get the peak heap usage, as the sum of peak usages of heap memory pools since the start of the run.
+         *
+         * @return the number of bytes.
+         */
+        long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        /**
+         * Get the number of distinct automata built for patterns of the rules and their parts.
+         *
+         * @return the number of automata.
+         */
+        int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Get the number of patterns or their parts that reused an automaton built for an equal one.
+         *
+         * @return the number of reuses.
+         */
+        long getReuseCount() {
+            return reuseCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Processed %d words in %.3f s (%.0f words/s), peak heap %.1f MiB,"
+                            + " %d automata built, %d reused",
+                    wordCount, elapsedNanos / 1e9, getWordsPerSecond(), peakHeapBytes / (1024.0 * 1024.0),
+                    nodeCount, reuseCount);
+        }
     }
 }
@@ -0,0 +1,142 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A symbol table interning symbols to dense integer identifiers.
+ *
+ * Identifiers are assigned in order of interning, starting from 0. Symbols are interned when automata using them
+ * are built, so that words encoded once can be matched against any number of automata without hashing strings.
+ * Instances are safe for use by multiple threads.
+ */
+public final class Alphabet {
+    /**
+     * The identifier used for symbols that have not been interned.
+     */
+    public static final int UNKNOWN_SYMBOL = -1;
+
+    private static final Alphabet DEFAULT = new Alphabet();
+
+    private final ConcurrentHashMap<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[0];
+
+    /**
+     * Get the alphabet shared by all automata built with NFA factory methods.
+     *
+     * @return the default alphabet
+     */
+    public static Alphabet getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the identifier of given symbol, assigning a new one if the symbol has not been interned yet.
+     *
+     * @param symbol a symbol
+     * @return the identifier of the symbol
+     */
+    public int intern(String symbol) {
+        final var id = symbolIds.get(symbol);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            final var existingId = symbolIds.get(symbol);
+            if (existingId != null) {
+                return existingId;
+            }
+
+            final var newId = symbols.length;
+            final var extended = Arrays.copyOf(symbols, newId + 1);
+            extended[newId] = symbol;
+            symbols = extended;
+            symbolIds.put(symbol, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Get identifiers of given symbols, assigning new ones to symbols that have not been interned yet.
+     *
+     * @param symbols a list of symbols.
+     * @return an array of symbol identifiers.
+     */
+    public int[] intern(List<String> symbols) {
+        final var encoded = new int[symbols.size()];
+        var i = 0;
+        for (String s : symbols) {
+            encoded[i++] = intern(s);
+        }
+        return encoded;
+    }
+
+    /**
+     * Get the identifier of given symbol without interning it.
+     *
+     * @param symbol a symbol
+     * @return the identifier of the symbol or UNKNOWN_SYMBOL if the symbol has not been interned.
+     */
+    public int getId(String symbol) {
+        final var id = symbolIds.get(symbol);
+        return id == null ? UNKNOWN_SYMBOL : id;
+    }
+
+    /**
+     * Get the symbol with given identifier.
+     *
+     * @param id an identifier of an interned symbol
+     * @return the symbol
+     */
+    public String getSymbol(int id) {
+        final var current = symbols;
+        if (id < 0 || id >= current.length) {
+            throw new IllegalArgumentException("Unknown symbol identifier: " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Get the number of interned symbols.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Encode given symbols as their identifiers. Symbols that have not been interned are encoded as UNKNOWN_SYMBOL,
+     * which no automaton transition consumes.
+     *
+     * @param symbols a list of symbols.
+     * @return an array of symbol identifiers.
+     */
+    public int[] encode(List<String> symbols) {
+        final var encoded = new int[symbols.size()];
+        var i = 0;
+        for (String s : symbols) {
+            encoded[i++] = getId(s);
+        }
+        return encoded;
+    }
+
+    /**
+     * Decode a range of symbol identifiers.
+     *
+     * @param ids an array of symbol identifiers.
+     * @param from the index of the first identifier to decode, inclusive.
+     * @param to the index of the last identifier to decode, exclusive.
+     * @return a list of symbols.
+     */
+    public List<String> decode(int[] ids, int from, int to) {
+        final var decoded = new ArrayList<String>(to - from);
+        for (int i = from; i < to; i++) {
+            decoded.add(getSymbol(ids[i]));
+        }
+        return decoded;
+    }
+}
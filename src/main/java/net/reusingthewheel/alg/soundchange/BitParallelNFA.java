@@ -0,0 +1,231 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+
+/**
+ * A nondeterministic automaton without empty symbol transitions, simulated with its whole set of states
+ * stored in a single long.
+ *
+ * The automaton is a Glushkov automaton built from a compiled NFA: each of its positions stands for consuming
+ * a symbol of a set of symbols from a state of the NFA, and is active after such a symbol has been consumed.
+ * Bit 0 stands for the start state and the following bits for the positions, so automata with at most
+ * MAX_POSITIONS positions are supported.
+ *
+ * Consuming a symbol replaces the set of active positions with the positions following any of them,
+ * intersected with the mask of positions consuming the symbol. Positions following a set are looked up
+ * in tables indexed by consecutive 8 bits of the set, so a step takes a few table lookups, shifts and ANDs
+ * regardless of the number of active positions. Instances are immutable.
+ */
+public final class BitParallelNFA {
+    /**
+     * The maximum number of positions of an automaton.
+     */
+    public static final int MAX_POSITIONS = Long.SIZE - 1;
+
+    private static final int NO_COLUMN = NFAProgram.NO_COLUMN;
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final Alphabet alphabet;
+    private final int[] symbolColumns;
+    private final long[] columnMasks;
+    private final long[][] followTables;
+    private final long acceptingPositions;
+    private final int positionCount;
+    private final MatchMetrics metrics;
+
+    private BitParallelNFA(Alphabet alphabet, int[] symbolColumns, long[] columnMasks, long[][] followTables,
+                           long acceptingPositions, int positionCount, MatchMetrics metrics) {
+        this.alphabet = alphabet;
+        this.symbolColumns = symbolColumns;
+        this.columnMasks = columnMasks;
+        this.followTables = followTables;
+        this.acceptingPositions = acceptingPositions;
+        this.positionCount = positionCount;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Create a bit-parallel automaton accepting the same symbol sequences as given nondeterministic one,
+     * unless it requires more than MAX_POSITIONS positions.
+     *
+     * Consuming a symbol from a state of the program leads to a set of states that depends only on the column
+     * of the symbol. Columns leading from a state to the same set of states are merged into a single position,
+     * so the number of positions is usually equal to the number of symbol and symbol class transitions.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @return an instance of BitParallelNFA or null if the automaton has too many positions.
+     */
+    static BitParallelNFA fromProgram(NFAProgram program) {
+        final var columnCount = program.getColumnCount();
+        final var stack = new int[program.getStateCount()];
+        final var singleton = program.newStateSet();
+        final var sourceStates = new ArrayList<Integer>();
+        final var targetSets = new ArrayList<long[]>();
+        final var columnMasks = new long[columnCount];
+
+        for (int state = 0; state < program.getStateCount(); state++) {
+            singleton[state >>> 6] = 1L << state;
+            final var positions = new HashMap<BitSet, Integer>();
+            for (int column = 0; column < columnCount; column++) {
+                final var targets = program.newStateSet();
+                if (!program.step(singleton, program.getColumnSymbol(column), targets, stack)) {
+                    continue;
+                }
+                var position = positions.get(BitSet.valueOf(targets));
+                if (position == null) {
+                    if (targetSets.size() == MAX_POSITIONS) {
+                        return null;
+                    }
+                    position = targetSets.size() + 1;
+                    positions.put(BitSet.valueOf(targets), position);
+                    sourceStates.add(state);
+                    targetSets.add(targets);
+                }
+                columnMasks[column] |= 1L << position;
+            }
+            singleton[state >>> 6] = 0L;
+        }
+
+        // the set of states reached by each position: the start state is reached only initially
+        final var reachedSets = new ArrayList<long[]>();
+        final var startSet = program.newStateSet();
+        program.addClosure(program.getStartState(), startSet, stack);
+        reachedSets.add(startSet);
+        reachedSets.addAll(targetSets);
+
+        final var follow = new long[reachedSets.size()];
+        var acceptingPositions = 0L;
+        for (int position = 0; position < reachedSets.size(); position++) {
+            final var reached = reachedSets.get(position);
+            for (int next = 0; next < sourceStates.size(); next++) {
+                final int source = sourceStates.get(next);
+                if ((reached[source >>> 6] & (1L << source)) != 0) {
+                    follow[position] |= 1L << (next + 1);
+                }
+            }
+            if (program.containsAcceptingState(reached)) {
+                acceptingPositions |= 1L << position;
+            }
+        }
+
+        return new BitParallelNFA(program.getAlphabet(), program.getSymbolColumns(), columnMasks,
+                newFollowTables(follow), acceptingPositions, targetSets.size(), program.getMetrics());
+    }
+
+    private static long[][] newFollowTables(long[] follow) {
+        final var tables = new long[(follow.length + CHUNK_BITS - 1) / CHUNK_BITS][CHUNK_MASK + 1];
+        for (int chunk = 0; chunk < tables.length; chunk++) {
+            final var table = tables[chunk];
+            for (int bits = 1; bits <= CHUNK_MASK; bits++) {
+                // extend the entry for the same bits without the highest one
+                final var highest = Integer.numberOfTrailingZeros(Integer.highestOneBit(bits));
+                final var position = chunk * CHUNK_BITS + highest;
+                table[bits] = table[bits & ~(1 << highest)] | (position < follow.length ? follow[position] : 0L);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = alphabet.encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        var positions = 1L;
+        var i = from;
+        for (; i < to; i++) {
+            positions = step(positions, symbols[i]);
+            if (positions == 0) {
+                break;
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            recordScan(from, i, to);
+        }
+        return (positions & acceptingPositions) != 0;
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+
+        var positions = 1L;
+        var end = (positions & acceptingPositions) != 0 ? from : NFAProgram.NO_MATCH;
+        var i = from;
+        for (; i < to; i++) {
+            positions = step(positions, symbols[i]);
+            if (positions == 0) {
+                break;
+            }
+            if ((positions & acceptingPositions) != 0) {
+                end = i + 1;
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            recordScan(from, i, to);
+            metrics.recordPrefixScan(i - from);
+        }
+        return end == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, end);
+    }
+
+    /**
+     * Record a scan that consumed the symbols from given index up to the stopping index, and one more symbol
+     * leading to the empty set of positions, if there was one. Each step looks up every follow table.
+     */
+    private void recordScan(int from, int stop, int to) {
+        metrics.recordSymbols(stop - from);
+        metrics.recordTableLookups((Math.min(stop + 1, to) - from) * followTables.length);
+    }
+
+    private long step(long positions, int symbol) {
+        if (symbol < 0 || symbol >= symbolColumns.length || symbolColumns[symbol] == NO_COLUMN) {
+            return 0L;
+        }
+        var next = 0L;
+        for (int chunk = 0; chunk < followTables.length; chunk++) {
+            next |= followTables[chunk][(int) (positions >>> (chunk * CHUNK_BITS)) & CHUNK_MASK];
+        }
+        return next & columnMasks[symbolColumns[symbol]];
+    }
+
+    /**
+     * Get the number of positions of the automaton, not counting the start state.
+     *
+     * @return the number of positions.
+     */
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+}
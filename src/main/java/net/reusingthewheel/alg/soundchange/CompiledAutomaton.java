@@ -0,0 +1,201 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A frozen, compiled form of an automaton that can be shared by any number of threads.
+ *
+ * It holds the automaton compiled into flat arrays and, if the automaton can be determinized within a limit
+ * of states, the minimal deterministic automaton used for matching. Otherwise, if the automaton is small enough,
+ * matching is done by its bit-parallel form, and only larger automata are matched by simulating the NFA.
+ * All fields are final and none of the arrays is modified after construction, so an instance can be published
+ * once and used without locking. For that reason a LazyDFA, which caches states while matching, is never used
+ * here; a thread matching an automaton too large to be determinized can get its own one from NFA.toLazyDFA.
+ */
+public final class CompiledAutomaton {
+    /**
+     * The default maximum number of states of the deterministic automaton built during compilation.
+     */
+    public static final int DEFAULT_MAX_DFA_STATES = 4096;
+
+    private final NFAProgram program;
+    private final DFA dfa;
+    private final BitParallelNFA bitParallelNFA;
+
+    private CompiledAutomaton(NFAProgram program, DFA dfa, BitParallelNFA bitParallelNFA) {
+        this.program = program;
+        this.dfa = dfa;
+        this.bitParallelNFA = bitParallelNFA;
+    }
+
+    /**
+     * Compile an automaton, determinizing it if it requires at most DEFAULT_MAX_DFA_STATES states.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @return an instance of CompiledAutomaton
+     */
+    public static CompiledAutomaton of(NFAProgram program) {
+        return of(program, DEFAULT_MAX_DFA_STATES);
+    }
+
+    /**
+     * Compile an automaton, determinizing it if it requires at most given number of states.
+     * If it does not, a bit-parallel form of the automaton is built if it has at most
+     * BitParallelNFA.MAX_POSITIONS positions.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @param maxDFAStates the maximum number of states of the deterministic automaton, or 0 to never build it.
+     * @return an instance of CompiledAutomaton
+     */
+    public static CompiledAutomaton of(NFAProgram program, int maxDFAStates) {
+        final var dfa = maxDFAStates > 0 ? DFA.fromProgram(program, maxDFAStates) : null;
+        if (dfa != null) {
+            return new CompiledAutomaton(program, dfa.minimize(), null);
+        }
+        return new CompiledAutomaton(program, null, BitParallelNFA.fromProgram(program));
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = getAlphabet().encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (dfa != null) {
+            return dfa.isMatch(symbols, from, to);
+        }
+        if (bitParallelNFA != null) {
+            return bitParallelNFA.isMatch(symbols, from, to);
+        }
+        return program.isMatch(symbols, from, to);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        if (dfa != null) {
+            return dfa.getMatchingPrefix(symbols, from, to);
+        }
+        if (bitParallelNFA != null) {
+            return bitParallelNFA.getMatchingPrefix(symbols, from, to);
+        }
+        return program.getMatchingPrefix(symbols, from, to);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols ending at its end such as the automaton reaches
+     * an accepting state after consuming the subsequence. The range is scanned backwards, without copying.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingSuffix(int[] symbols, int from, int to) {
+        return program.getMatchingSuffix(symbols, from, to);
+    }
+
+    /**
+     * Find all non-overlapping leftmost-longest matches within given range of symbols in a single pass.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return a list of spans of the matches, in order of their positions.
+     * @see NFAProgram#findAll(int[], int, int)
+     */
+    public List<MatchSpan> findAll(int[] symbols, int from, int to) {
+        return program.findAll(symbols, from, to);
+    }
+
+    /**
+     * Replace all non-overlapping leftmost-longest matches within given range of symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @param replacement an array of symbol identifiers replacing each match.
+     * @return the symbols of the range with the matches replaced.
+     * @see NFAProgram#replaceAll(int[], int, int, int[])
+     */
+    public int[] replaceAll(int[] symbols, int from, int to, int[] replacement) {
+        return program.replaceAll(symbols, from, to, replacement);
+    }
+
+    /**
+     * Create a matching session consuming symbols one at a time. Each thread needs its own session.
+     *
+     * @return a new matcher in the start state of the automaton.
+     */
+    public Matcher newMatcher() {
+        return program.newMatcher();
+    }
+
+    /**
+     * Check if matching is done with a deterministic automaton.
+     *
+     * @return true if the automaton has been determinized within the state limit.
+     */
+    public boolean isDeterministic() {
+        return dfa != null;
+    }
+
+    /**
+     * Check if matching is done with the bit-parallel form of the automaton.
+     *
+     * @return true if the automaton has not been determinized, but has at most BitParallelNFA.MAX_POSITIONS
+     * positions.
+     */
+    public boolean isBitParallel() {
+        return bitParallelNFA != null;
+    }
+
+    /**
+     * Get the deterministic automaton used for matching.
+     *
+     * @return the automaton or null if the automaton has not been determinized.
+     */
+    DFA getDFA() {
+        return dfa;
+    }
+
+    /**
+     * Get the bit-parallel form of the automaton used for matching.
+     *
+     * @return the automaton or null if matching is done otherwise.
+     */
+    BitParallelNFA getBitParallelNFA() {
+        return bitParallelNFA;
+    }
+
+    public NFAProgram getProgram() {
+        return program;
+    }
+
+    public Alphabet getAlphabet() {
+        return program.getAlphabet();
+    }
+}
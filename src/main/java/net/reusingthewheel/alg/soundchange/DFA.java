@@ -0,0 +1,495 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A deterministic finite state automaton compiled from an NFA using the subset construction.
+ *
+ * The transitions are stored in a dense table indexed by a state and a column assigned to each symbol of
+ * the automaton, so matching a word requires a single table lookup per symbol. Instances are immutable.
+ */
+public final class DFA {
+    static final int DEAD_STATE = -1;
+    private static final int NO_COLUMN = NFAProgram.NO_COLUMN;
+
+    private final Alphabet alphabet;
+    private final int[] symbolColumns;
+    private final int startState;
+    private final int[][] transitions;
+    private final BitSet acceptingStates;
+    private final int originalStateCount;
+    private final MatchMetrics metrics;
+
+    private DFA(Alphabet alphabet, int[] symbolColumns, int startState, int[][] transitions,
+                BitSet acceptingStates, int originalStateCount, MatchMetrics metrics) {
+        this.alphabet = alphabet;
+        this.symbolColumns = symbolColumns;
+        this.startState = startState;
+        this.transitions = transitions;
+        this.acceptingStates = acceptingStates;
+        this.originalStateCount = originalStateCount;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Create a deterministic automaton accepting the same symbol sequences as given nondeterministic one.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @return an instance of DFA
+     */
+    static DFA fromProgram(NFAProgram program) {
+        return fromProgram(program, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a deterministic automaton accepting the same symbol sequences as given nondeterministic one,
+     * unless it requires more than given number of states.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @param maxStates the maximum number of states of the result.
+     * @return an instance of DFA or null if the limit has been exceeded.
+     */
+    static DFA fromProgram(NFAProgram program, int maxStates) {
+        final var columnCount = program.getColumnCount();
+        final var stack = new int[program.getStateCount()];
+        final var dfaStateIds = new HashMap<BitSet, Integer>();
+        final var dfaStates = new ArrayList<long[]>();
+        final var rows = new ArrayList<int[]>();
+        final var acceptingStates = new BitSet();
+
+        final var startSet = program.newStateSet();
+        program.addClosure(program.getStartState(), startSet, stack);
+        dfaStateIds.put(BitSet.valueOf(startSet), 0);
+        dfaStates.add(startSet);
+
+        var nextSet = program.newStateSet();
+        for (int current = 0; current < dfaStates.size(); current++) {
+            final var nfaStateSet = dfaStates.get(current);
+            if (program.containsAcceptingState(nfaStateSet)) {
+                acceptingStates.set(current);
+            }
+
+            // all symbols of a column lead to the same set of states, so one of them is enough
+            final var row = new int[columnCount];
+            for (int column = 0; column < columnCount; column++) {
+                if (!program.step(nfaStateSet, program.getColumnSymbol(column), nextSet, stack)) {
+                    row[column] = DEAD_STATE;
+                    continue;
+                }
+                final var key = BitSet.valueOf(nextSet);
+                var nextState = dfaStateIds.get(key);
+                if (nextState == null) {
+                    if (dfaStates.size() == maxStates) {
+                        return null;
+                    }
+                    nextState = dfaStates.size();
+                    dfaStateIds.put(key, nextState);
+                    dfaStates.add(nextSet);
+                    nextSet = program.newStateSet();
+                }
+                row[column] = nextState;
+            }
+            rows.add(row);
+        }
+
+        return new DFA(program.getAlphabet(), program.getSymbolColumns(), 0, rows.toArray(new int[0][]),
+                acceptingStates, rows.size(), program.getMetrics());
+    }
+
+    /**
+     * Create an automaton with the minimal number of states accepting the same symbol sequences as this one.
+     *
+     * Equivalent states are merged using Hopcroft's partition refinement algorithm. States from which no accepting
+     * state can be reached are merged into the implicit dead state.
+     *
+     * @return an instance of DFA
+     */
+    public DFA minimize() {
+        final var stateCount = transitions.length + 1;
+        final var deadState = transitions.length;
+        final var columnCount = transitions[0].length;
+
+        final var predecessorOffsets = new int[columnCount * stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            for (int column = 0; column < columnCount; column++) {
+                predecessorOffsets[column * stateCount + getCompleteTransition(state, column) + 1]++;
+            }
+        }
+        for (int i = 1; i < predecessorOffsets.length; i++) {
+            predecessorOffsets[i] += predecessorOffsets[i - 1];
+        }
+        final var predecessors = new int[columnCount * stateCount];
+        final var filled = Arrays.copyOf(predecessorOffsets, predecessorOffsets.length - 1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int column = 0; column < columnCount; column++) {
+                predecessors[filled[column * stateCount + getCompleteTransition(state, column)]++] = state;
+            }
+        }
+
+        final var partition = new Partition(stateCount, acceptingStates);
+        final var pending = new ArrayDeque<Integer>();
+        final var isPending = new BitSet();
+        for (int block = 0; block < partition.getBlockCount(); block++) {
+            pending.add(block);
+            isPending.set(block);
+        }
+
+        while (!pending.isEmpty()) {
+            final var splitter = pending.poll();
+            isPending.clear(splitter);
+            final var splitterStates = partition.getStates(splitter);
+            for (int column = 0; column < columnCount; column++) {
+                for (var target : splitterStates) {
+                    final var offset = column * stateCount + target;
+                    for (int p = predecessorOffsets[offset]; p < predecessorOffsets[offset + 1]; p++) {
+                        partition.mark(predecessors[p]);
+                    }
+                }
+                partition.splitMarked((block, newBlock) -> {
+                    if (isPending.get(block) || partition.getSize(newBlock) <= partition.getSize(block)) {
+                        pending.add(newBlock);
+                        isPending.set(newBlock);
+                    } else {
+                        pending.add(block);
+                        isPending.set(block);
+                    }
+                });
+            }
+        }
+
+        return fromPartition(partition, partition.getBlock(deadState));
+    }
+
+    private int getCompleteTransition(int state, int column) {
+        if (state == transitions.length) {
+            return state;
+        }
+        final var target = transitions[state][column];
+        return target == DEAD_STATE ? transitions.length : target;
+    }
+
+    private DFA fromPartition(Partition partition, int deadBlock) {
+        final var newStates = new int[partition.getBlockCount()];
+        Arrays.fill(newStates, DEAD_STATE);
+        final var representatives = new ArrayList<Integer>();
+        final var startBlock = partition.getBlock(startState);
+        if (startBlock == deadBlock) {
+            final var columnCount = transitions[0].length;
+            final var row = new int[columnCount];
+            Arrays.fill(row, DEAD_STATE);
+            return new DFA(alphabet, symbolColumns, 0, new int[][]{row}, new BitSet(), originalStateCount,
+                    metrics);
+        }
+
+        newStates[startBlock] = 0;
+        representatives.add(startState);
+        final var rows = new ArrayList<int[]>();
+        final var newAcceptingStates = new BitSet();
+        for (int newState = 0; newState < representatives.size(); newState++) {
+            final var state = representatives.get(newState);
+            if (acceptingStates.get(state)) {
+                newAcceptingStates.set(newState);
+            }
+            final var row = new int[transitions[state].length];
+            for (int column = 0; column < row.length; column++) {
+                final var target = transitions[state][column];
+                final var targetBlock = target == DEAD_STATE ? deadBlock : partition.getBlock(target);
+                if (targetBlock == deadBlock) {
+                    row[column] = DEAD_STATE;
+                    continue;
+                }
+                if (newStates[targetBlock] == DEAD_STATE) {
+                    newStates[targetBlock] = representatives.size();
+                    representatives.add(target);
+                }
+                row[column] = newStates[targetBlock];
+            }
+            rows.add(row);
+        }
+
+        return new DFA(alphabet, symbolColumns, 0, rows.toArray(new int[0][]), newAcceptingStates,
+                originalStateCount, metrics);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = alphabet.encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        var state = startState;
+        var i = from;
+        for (; i < to; i++) {
+            state = step(state, symbols[i]);
+            if (state == DEAD_STATE) {
+                break;
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            recordScan(from, i, to);
+        }
+
+        return state != DEAD_STATE && acceptingStates.get(state);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+
+        var state = startState;
+        var end = acceptingStates.get(state) ? from : NFAProgram.NO_MATCH;
+        var i = from;
+        for (; i < to; i++) {
+            state = step(state, symbols[i]);
+            if (state == DEAD_STATE) {
+                break;
+            }
+            if (acceptingStates.get(state)) {
+                end = i + 1;
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            recordScan(from, i, to);
+            metrics.recordPrefixScan(i - from);
+        }
+        return end == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, end);
+    }
+
+    /**
+     * Record a scan that consumed the symbols from given index up to the stopping index, with a table lookup
+     * for each of them and one more for the symbol leading to the dead state, if there was one.
+     */
+    private void recordScan(int from, int stop, int to) {
+        metrics.recordSymbols(stop - from);
+        metrics.recordTableLookups(Math.min(stop + 1, to) - from);
+    }
+
+    /**
+     * Get the state reached from given state by consuming given symbol.
+     *
+     * @param state a state.
+     * @param symbol an identifier of a symbol.
+     * @return the next state or DEAD_STATE.
+     */
+    int step(int state, int symbol) {
+        if (symbol < 0 || symbol >= symbolColumns.length) {
+            return DEAD_STATE;
+        }
+        final var column = symbolColumns[symbol];
+        return column == NO_COLUMN ? DEAD_STATE : transitions[state][column];
+    }
+
+    int getStartState() {
+        return startState;
+    }
+
+    boolean isAccepting(int state) {
+        return acceptingStates.get(state);
+    }
+
+    /**
+     * Write the automaton to a file in the binary format read by MappedDFA.
+     *
+     * @param path the path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MappedDFA.MAGIC);
+            output.writeInt(MappedDFA.VERSION);
+
+            final var symbolCount = (int) Arrays.stream(symbolColumns).filter(c -> c != NO_COLUMN).count();
+            output.writeInt(symbolCount);
+            for (int symbol = 0; symbol < symbolColumns.length; symbol++) {
+                if (symbolColumns[symbol] != NO_COLUMN) {
+                    final var bytes = alphabet.getSymbol(symbol).getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                    output.writeInt(symbolColumns[symbol]);
+                }
+            }
+
+            final var columnCount = transitions[0].length;
+            output.writeInt(columnCount);
+            output.writeInt(transitions.length);
+            output.writeInt(startState);
+            while (output.size() % Long.BYTES != 0) {
+                output.writeByte(0);
+            }
+
+            final var acceptingWords = acceptingStates.toLongArray();
+            for (int word = 0; word < MappedDFA.getAcceptingStatesLength(transitions.length); word++) {
+                output.writeLong(word < acceptingWords.length ? acceptingWords[word] : 0L);
+            }
+            for (var row : transitions) {
+                for (var target : row) {
+                    output.writeInt(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the alphabet used to encode symbols consumed by the automaton.
+     *
+     * @return the alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Get the number of states of the automaton, not including the implicit dead state.
+     *
+     * @return the number of states.
+     */
+    public int getStateCount() {
+        return transitions.length;
+    }
+
+    /**
+     * Get the number of states of the automaton before it has been minimized.
+     *
+     * @return the number of states of the automaton produced by the subset construction.
+     */
+    public int getOriginalStateCount() {
+        return originalStateCount;
+    }
+
+    /**
+     * A partition of states into blocks. States of each block occupy a contiguous range of an array, with
+     * marked states at its beginning, so blocks can be split in time proportional to the number of marked states.
+     */
+    private static final class Partition {
+        private final int[] states;
+        private final int[] locations;
+        private final int[] blocks;
+        private int[] blockStarts;
+        private int[] blockEnds;
+        private int[] markedCounts;
+        private int blockCount;
+        private final List<Integer> markedBlocks = new ArrayList<>();
+
+        private Partition(int stateCount, BitSet acceptingStates) {
+            states = new int[stateCount];
+            locations = new int[stateCount];
+            blocks = new int[stateCount];
+            blockStarts = new int[2];
+            blockEnds = new int[2];
+            markedCounts = new int[2];
+
+            var position = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                final var accepting = pass == 0;
+                final var start = position;
+                for (int state = 0; state < stateCount; state++) {
+                    if (acceptingStates.get(state) == accepting) {
+                        states[position] = state;
+                        locations[state] = position++;
+                        blocks[state] = blockCount;
+                    }
+                }
+                if (position > start) {
+                    blockStarts[blockCount] = start;
+                    blockEnds[blockCount++] = position;
+                }
+            }
+        }
+
+        private int getBlockCount() {
+            return blockCount;
+        }
+
+        private int getBlock(int state) {
+            return blocks[state];
+        }
+
+        private int getSize(int block) {
+            return blockEnds[block] - blockStarts[block];
+        }
+
+        private int[] getStates(int block) {
+            return Arrays.copyOfRange(states, blockStarts[block], blockEnds[block]);
+        }
+
+        private void mark(int state) {
+            final var block = blocks[state];
+            final var markedPosition = blockStarts[block] + markedCounts[block];
+            final var location = locations[state];
+            if (location < markedPosition) {
+                return;
+            }
+            if (markedCounts[block] == 0) {
+                markedBlocks.add(block);
+            }
+
+            final var other = states[markedPosition];
+            states[markedPosition] = state;
+            locations[state] = markedPosition;
+            states[location] = other;
+            locations[other] = location;
+            markedCounts[block]++;
+        }
+
+        private void splitMarked(SplitListener listener) {
+            for (var block : markedBlocks) {
+                final var marked = markedCounts[block];
+                markedCounts[block] = 0;
+                if (marked == getSize(block)) {
+                    continue;
+                }
+                if (blockCount == blockStarts.length) {
+                    blockStarts = Arrays.copyOf(blockStarts, 2 * blockCount);
+                    blockEnds = Arrays.copyOf(blockEnds, 2 * blockCount);
+                    markedCounts = Arrays.copyOf(markedCounts, 2 * blockCount);
+                }
+
+                final var newBlock = blockCount++;
+                blockStarts[newBlock] = blockStarts[block];
+                blockEnds[newBlock] = blockStarts[block] + marked;
+                blockStarts[block] = blockEnds[newBlock];
+                for (int i = blockStarts[newBlock]; i < blockEnds[newBlock]; i++) {
+                    blocks[states[i]] = newBlock;
+                }
+                listener.onSplit(block, newBlock);
+            }
+            markedBlocks.clear();
+        }
+    }
+
+    private interface SplitListener {
+        void onSplit(int block, int newBlock);
+    }
+}
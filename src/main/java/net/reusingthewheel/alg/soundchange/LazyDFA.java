@@ -0,0 +1,251 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+
+/**
+ * A deterministic automaton built from a compiled NFA on demand, during matching.
+ *
+ * States of the deterministic automaton and transitions between them are computed the first time they are needed
+ * and cached. When the number of cached states reaches a limit, the whole cache is flushed and building starts over.
+ * If the cache keeps being flushed after only a few symbols per cached state, the automaton stops building states
+ * and falls back to simulating the NFA.
+ *
+ * The cache is mutable, so an instance must not be used by multiple threads at the same time.
+ */
+public final class LazyDFA {
+    private static final int DEAD_STATE = -1;
+    private static final int UNKNOWN_STATE = -2;
+    private static final int NO_COLUMN = NFAProgram.NO_COLUMN;
+    private static final int MIN_SYMBOLS_PER_STATE = 10;
+    private static final int MAX_INEFFICIENT_FLUSHES = 3;
+
+    private final NFAProgram program;
+    private final int maxStates;
+    private final int[] symbolColumns;
+    private final int[] columnSymbols;
+    private final int[] stack;
+    private final Matcher fallbackMatcher;
+
+    private final Map<BitSet, Integer> stateIds = new HashMap<>();
+    private final List<long[]> stateSets = new ArrayList<>();
+    private final BitSet acceptingStates = new BitSet();
+    private int[] transitions;
+
+    private long hitCount;
+    private long missCount;
+    private long flushCount;
+    private long symbolsSinceFlush;
+    private int inefficientFlushes;
+    private boolean usingFallback;
+
+    private LazyDFA(NFAProgram program, int maxStates) {
+        if (maxStates < 2) {
+            throw new IllegalArgumentException("The state limit must be at least 2, got " + maxStates);
+        }
+        this.program = program;
+        this.maxStates = maxStates;
+
+        this.symbolColumns = program.getSymbolColumns();
+        this.columnSymbols = new int[program.getColumnCount()];
+        for (int column = 0; column < columnSymbols.length; column++) {
+            columnSymbols[column] = program.getColumnSymbol(column);
+        }
+
+        this.stack = new int[program.getStateCount()];
+        this.fallbackMatcher = program.newMatcher();
+        this.transitions = new int[Math.max(1, columnSymbols.length) * 16];
+        flush();
+    }
+
+    /**
+     * Create a lazily built deterministic automaton caching at most given number of states.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @param maxStates the maximum number of cached states.
+     * @return an instance of LazyDFA
+     */
+    public static LazyDFA withStateLimit(NFAProgram program, int maxStates) {
+        return new LazyDFA(program, maxStates);
+    }
+
+    /**
+     * Create a lazily built deterministic automaton whose cache takes approximately at most given number of bytes.
+     *
+     * @param program a compiled nondeterministic automaton.
+     * @param maxBytes the approximate maximum size of the cache.
+     * @return an instance of LazyDFA
+     */
+    public static LazyDFA withMemoryLimit(NFAProgram program, long maxBytes) {
+        final long bytesPerState = 4L * program.getColumnCount() + 8L * program.newStateSet().length + 64;
+        return new LazyDFA(program, (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / bytesPerState)));
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (usingFallback) {
+            return fallbackMatcher.matches(symbols, from, to);
+        }
+
+        var state = 0;
+        for (int i = from; i < to; i++) {
+            state = step(state, symbols[i]);
+            if (state == DEAD_STATE) {
+                return false;
+            }
+        }
+        return acceptingStates.get(state);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+
+        int end;
+        if (usingFallback) {
+            end = fallbackMatcher.getMatchingPrefixEnd(symbols, from, to);
+        } else {
+            var state = 0;
+            end = acceptingStates.get(state) ? from : NFAProgram.NO_MATCH;
+            for (int i = from; i < to; i++) {
+                state = step(state, symbols[i]);
+                if (state == DEAD_STATE) {
+                    break;
+                }
+                if (acceptingStates.get(state)) {
+                    end = i + 1;
+                }
+            }
+        }
+        return end == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, end);
+    }
+
+    private int step(int state, int symbol) {
+        symbolsSinceFlush++;
+        if (symbol < 0 || symbol >= symbolColumns.length || symbolColumns[symbol] == NO_COLUMN) {
+            return DEAD_STATE;
+        }
+
+        final var column = symbolColumns[symbol];
+        final var cached = transitions[state * columnSymbols.length + column];
+        if (cached != UNKNOWN_STATE) {
+            hitCount++;
+            if (MatchMetrics.ENABLED) {
+                program.getMetrics().recordCacheHit();
+            }
+            return cached;
+        }
+
+        missCount++;
+        if (MatchMetrics.ENABLED) {
+            program.getMetrics().recordCacheMiss();
+        }
+        final var nextSet = program.newStateSet();
+        if (!program.step(stateSets.get(state), columnSymbols[column], nextSet, stack)) {
+            transitions[state * columnSymbols.length + column] = DEAD_STATE;
+            return DEAD_STATE;
+        }
+
+        final var existing = stateIds.get(BitSet.valueOf(nextSet));
+        if (existing != null) {
+            transitions[state * columnSymbols.length + column] = existing;
+            return existing;
+        }
+        if (stateSets.size() == maxStates) {
+            registerFlush();
+            return addState(nextSet);
+        }
+
+        final var nextState = addState(nextSet);
+        transitions[state * columnSymbols.length + column] = nextState;
+        return nextState;
+    }
+
+    private void registerFlush() {
+        flushCount++;
+        if (symbolsSinceFlush < (long) MIN_SYMBOLS_PER_STATE * maxStates) {
+            inefficientFlushes++;
+        } else {
+            inefficientFlushes = 0;
+        }
+        if (inefficientFlushes >= MAX_INEFFICIENT_FLUSHES) {
+            usingFallback = true;
+        }
+        flush();
+    }
+
+    private void flush() {
+        stateIds.clear();
+        stateSets.clear();
+        acceptingStates.clear();
+        symbolsSinceFlush = 0;
+
+        final var startSet = program.newStateSet();
+        program.addClosure(program.getStartState(), startSet, stack);
+        addState(startSet);
+    }
+
+    private int addState(long[] stateSet) {
+        final var state = stateSets.size();
+        stateIds.put(BitSet.valueOf(stateSet), state);
+        stateSets.add(stateSet);
+        if (program.containsAcceptingState(stateSet)) {
+            acceptingStates.set(state);
+        }
+
+        final var required = (state + 1) * columnSymbols.length;
+        if (transitions.length < required) {
+            transitions = Arrays.copyOf(transitions, Math.max(required, 2 * transitions.length));
+        }
+        Arrays.fill(transitions, state * columnSymbols.length, required, UNKNOWN_STATE);
+        return state;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Get the number of states currently cached.
+     *
+     * @return the number of states.
+     */
+    public int getCachedStateCount() {
+        return stateSets.size();
+    }
+
+    /**
+     * Check if the automaton has stopped building states because of the cache being flushed too often.
+     *
+     * @return true if matching is done by simulating the NFA.
+     */
+    public boolean isUsingFallback() {
+        return usingFallback;
+    }
+}
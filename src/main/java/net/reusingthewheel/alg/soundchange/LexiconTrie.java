@@ -0,0 +1,305 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+
+/**
+ * A lexicon stored as a trie of symbols, matched against automata in a single traversal.
+ *
+ * Words sharing a prefix share the path of the trie spelling it, so an automaton consumes each prefix once
+ * for all words starting with it, and a subtree is skipped as soon as the automaton cannot reach any state
+ * after consuming its prefix.
+ *
+ * Nodes are numbered in depth-first order and their children and words are stored in flat arrays, so all
+ * words in a subtree of a node have consecutive indexes. Instances are immutable.
+ *
+ * Symbols of the words are encoded without being interned, so the trie should be created after the automata
+ * matched against it. Symbols that have not been interned cannot be consumed by any automaton, so they all lead
+ * to a single child whose subtree no traversal enters.
+ */
+public final class LexiconTrie {
+    private static final int ROOT = 0;
+
+    private final Alphabet alphabet;
+    private final List<List<String>> words;
+    private final int[] childOffsets;
+    private final int[] childSymbols;
+    private final int[] childNodes;
+    private final int[] subtreeEnds;
+    private final int[] wordOffsets;
+    private final int[] nodeWords;
+    private final int depth;
+
+    private LexiconTrie(Alphabet alphabet, List<List<String>> words, int[] childOffsets, int[] childSymbols,
+                        int[] childNodes, int[] subtreeEnds, int[] wordOffsets, int[] nodeWords, int depth) {
+        this.alphabet = alphabet;
+        this.words = words;
+        this.childOffsets = childOffsets;
+        this.childSymbols = childSymbols;
+        this.childNodes = childNodes;
+        this.subtreeEnds = subtreeEnds;
+        this.wordOffsets = wordOffsets;
+        this.nodeWords = nodeWords;
+        this.depth = depth;
+    }
+
+    /**
+     * Create a trie of words, encoding their symbols with the default alphabet.
+     *
+     * @param words a list of words.
+     * @return an instance of LexiconTrie
+     */
+    public static LexiconTrie of(List<List<String>> words) {
+        final var alphabet = Alphabet.getDefault();
+        final var root = new Node();
+        var depth = 0;
+        for (int i = 0; i < words.size(); i++) {
+            var node = root;
+            for (var symbol : words.get(i)) {
+                node = node.children.computeIfAbsent(alphabet.getId(symbol), s -> new Node());
+            }
+            node.words.add(i);
+            depth = Math.max(depth, words.get(i).size());
+        }
+
+        final var nodes = new ArrayList<Node>();
+        root.number(nodes);
+        final var nodeCount = nodes.size();
+        final var childOffsets = new int[nodeCount + 1];
+        final var childSymbols = new int[nodeCount - 1];
+        final var childNodes = new int[nodeCount - 1];
+        final var subtreeEnds = new int[nodeCount];
+        final var wordOffsets = new int[nodeCount + 1];
+        final var nodeWords = new int[words.size()];
+        var child = 0;
+        var word = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            final var node = nodes.get(i);
+            for (var entry : node.children.entrySet()) {
+                childSymbols[child] = entry.getKey();
+                childNodes[child++] = entry.getValue().id;
+            }
+            childOffsets[i + 1] = child;
+            subtreeEnds[i] = node.subtreeEnd;
+            for (var w : node.words) {
+                nodeWords[word++] = w;
+            }
+            wordOffsets[i + 1] = word;
+        }
+
+        return new LexiconTrie(alphabet, List.copyOf(words), childOffsets, childSymbols, childNodes, subtreeEnds,
+                wordOffsets, nodeWords, depth);
+    }
+
+    private static final class Node {
+        private final SortedMap<Integer, Node> children = new TreeMap<>();
+        private final List<Integer> words = new ArrayList<>(0);
+        private int id;
+        private int subtreeEnd;
+
+        /**
+         * Number the nodes of the subtree in depth-first order.
+         *
+         * @param nodes the list to add the nodes to, in order of their numbers.
+         */
+        private void number(List<Node> nodes) {
+            final var pending = new ArrayDeque<Node>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                final var node = pending.pop();
+                node.id = nodes.size();
+                nodes.add(node);
+                final var children = new ArrayList<>(node.children.values());
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                }
+            }
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                final var node = nodes.get(i);
+                node.subtreeEnd = node.id + 1;
+                for (var child : node.children.values()) {
+                    node.subtreeEnd = Math.max(node.subtreeEnd, child.subtreeEnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get indexes of words accepted by an automaton.
+     *
+     * @param automaton a compiled automaton using the same alphabet as the trie.
+     * @return a set of indexes of the words in the list the trie has been created from.
+     */
+    public BitSet getAcceptedWordIndexes(CompiledAutomaton automaton) {
+        return match(automaton, false);
+    }
+
+    /**
+     * Get indexes of words starting with a sequence of symbols accepted by an automaton, including the empty
+     * sequence and the whole word.
+     *
+     * @param automaton a compiled automaton using the same alphabet as the trie.
+     * @return a set of indexes of the words in the list the trie has been created from.
+     */
+    public BitSet getWordIndexesWithMatchingPrefix(CompiledAutomaton automaton) {
+        return match(automaton, true);
+    }
+
+    /**
+     * Get words accepted by an automaton.
+     *
+     * @param automaton a compiled automaton using the same alphabet as the trie.
+     * @return a list of words, in order of the list the trie has been created from.
+     */
+    public List<List<String>> getAcceptedWords(CompiledAutomaton automaton) {
+        return getWords(getAcceptedWordIndexes(automaton));
+    }
+
+    /**
+     * Get words starting with a sequence of symbols accepted by an automaton, including the empty sequence
+     * and the whole word.
+     *
+     * @param automaton a compiled automaton using the same alphabet as the trie.
+     * @return a list of words, in order of the list the trie has been created from.
+     */
+    public List<List<String>> getWordsWithMatchingPrefix(CompiledAutomaton automaton) {
+        return getWords(getWordIndexesWithMatchingPrefix(automaton));
+    }
+
+    private List<List<String>> getWords(BitSet indexes) {
+        final var result = new ArrayList<List<String>>(indexes.cardinality());
+        indexes.stream().forEach(i -> result.add(words.get(i)));
+        return result;
+    }
+
+    private BitSet match(CompiledAutomaton automaton, boolean prefixes) {
+        if (automaton.getAlphabet() != alphabet) {
+            throw new IllegalArgumentException("The automaton must use the alphabet of the trie");
+        }
+        final var result = new BitSet(words.size());
+        if (automaton.getDFA() != null) {
+            matchDeterministic(automaton.getDFA(), prefixes, result);
+        } else {
+            matchNondeterministic(automaton.getProgram(), prefixes, result);
+        }
+        return result;
+    }
+
+    private void matchDeterministic(DFA dfa, boolean prefixes, BitSet result) {
+        final var nodes = new int[depth + 1];
+        final var nextChildren = new int[depth + 1];
+        final var states = new int[depth + 1];
+        nodes[0] = ROOT;
+        nextChildren[0] = childOffsets[ROOT];
+        states[0] = dfa.getStartState();
+        if (visit(ROOT, dfa.isAccepting(states[0]), prefixes, result)) {
+            return;
+        }
+
+        var level = 0;
+        while (level >= 0) {
+            final var child = nextChildren[level];
+            if (child == childOffsets[nodes[level] + 1]) {
+                level--;
+                continue;
+            }
+            nextChildren[level]++;
+            if (childSymbols[child] == Alphabet.UNKNOWN_SYMBOL) {
+                continue;
+            }
+
+            final var state = dfa.step(states[level], childSymbols[child]);
+            if (state == DFA.DEAD_STATE) {
+                continue;
+            }
+            final var node = childNodes[child];
+            if (!visit(node, dfa.isAccepting(state), prefixes, result)) {
+                level++;
+                nodes[level] = node;
+                nextChildren[level] = childOffsets[node];
+                states[level] = state;
+            }
+        }
+    }
+
+    private void matchNondeterministic(NFAProgram program, boolean prefixes, BitSet result) {
+        final var nodes = new int[depth + 1];
+        final var nextChildren = new int[depth + 1];
+        final var states = new long[depth + 1][];
+        final var stack = new int[program.getStateCount()];
+        for (int i = 0; i <= depth; i++) {
+            states[i] = program.newStateSet();
+        }
+        nodes[0] = ROOT;
+        nextChildren[0] = childOffsets[ROOT];
+        program.addClosure(program.getStartState(), states[0], stack);
+        if (visit(ROOT, program.containsAcceptingState(states[0]), prefixes, result)) {
+            return;
+        }
+
+        var level = 0;
+        while (level >= 0) {
+            final var child = nextChildren[level];
+            if (child == childOffsets[nodes[level] + 1]) {
+                level--;
+                continue;
+            }
+            nextChildren[level]++;
+            if (childSymbols[child] == Alphabet.UNKNOWN_SYMBOL) {
+                continue;
+            }
+
+            if (!program.step(states[level], childSymbols[child], states[level + 1], stack)) {
+                continue;
+            }
+            final var node = childNodes[child];
+            if (!visit(node, program.containsAcceptingState(states[level + 1]), prefixes, result)) {
+                level++;
+                nodes[level] = node;
+                nextChildren[level] = childOffsets[node];
+            }
+        }
+    }
+
+    /**
+     * Collect words matched after the automaton reaches a node of the trie.
+     *
+     * @param node a node.
+     * @param accepting true if the automaton is in an accepting state after consuming the prefix of the node.
+     * @param prefixes true if words with a matching prefix are collected, false for accepted words.
+     * @param result the set to add indexes of the words to.
+     * @return true if the words of the subtree of the node have been collected and it does not need to be
+     * traversed.
+     */
+    private boolean visit(int node, boolean accepting, boolean prefixes, BitSet result) {
+        if (!accepting) {
+            return false;
+        }
+        final var end = prefixes ? wordOffsets[subtreeEnds[node]] : wordOffsets[node + 1];
+        for (int i = wordOffsets[node]; i < end; i++) {
+            result.set(nodeWords[i]);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Get the number of words in the trie.
+     *
+     * @return the number of words.
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Get the number of nodes of the trie, including the root.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return subtreeEnds.length;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+}
@@ -0,0 +1,252 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A deterministic automaton matched directly against a file written by DFA.save, mapped into memory.
+ *
+ * Only the symbols of the automaton are read onto the heap; the transition table and the accepting states
+ * are read from the mapped file, so processes loading the same file share its pages. Instances are immutable.
+ *
+ * The file starts with a header of big-endian integers: a magic number, the format version, the number
+ * of symbols followed by each symbol as a length-prefixed UTF-8 string with the index of its table column,
+ * the number of columns, the number of states and the start state. It is followed, at an offset aligned
+ * to 8 bytes, by a bitmap of accepting states and a row-major table of transitions, with -1 denoting
+ * a transition to the dead state.
+ *
+ * The header and the table are validated when loading, so a truncated or corrupted file is rejected
+ * by load instead of causing errors while matching. Validation reads the whole table once.
+ */
+public final class MappedDFA {
+    static final int MAGIC = 0x53434446;
+    static final int VERSION = 1;
+    private static final int NO_COLUMN = -1;
+
+    private final Alphabet alphabet;
+    private final int[] symbolColumns;
+    private final int columnCount;
+    private final int stateCount;
+    private final int startState;
+    private final LongBuffer acceptingStates;
+    private final IntBuffer transitions;
+
+    private MappedDFA(Alphabet alphabet, int[] symbolColumns, int columnCount, int stateCount, int startState,
+                      LongBuffer acceptingStates, IntBuffer transitions) {
+        this.alphabet = alphabet;
+        this.symbolColumns = symbolColumns;
+        this.columnCount = columnCount;
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.acceptingStates = acceptingStates;
+        this.transitions = transitions;
+    }
+
+    /**
+     * Map an automaton file into memory, interning its symbols in the default alphabet.
+     *
+     * @param path the path of the file.
+     * @return an instance of MappedDFA
+     * @throws IOException if the file cannot be read or is not a valid automaton file.
+     */
+    public static MappedDFA load(Path path) throws IOException {
+        return load(path, Alphabet.getDefault());
+    }
+
+    /**
+     * Map an automaton file into memory.
+     *
+     * @param path the path of the file.
+     * @param alphabet the alphabet to intern symbols of the automaton in.
+     * @return an instance of MappedDFA
+     * @throws IOException if the file cannot be read or is not a valid automaton file.
+     */
+    public static MappedDFA load(Path path, Alphabet alphabet) throws IOException {
+        final MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an automaton file: " + path);
+            }
+            final var version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported automaton file version " + version + ": " + path);
+            }
+
+            final var symbolCount = buffer.getInt();
+            // each symbol takes at least its length and its column
+            check(symbolCount >= 0 && symbolCount <= buffer.remaining() / (2 * Integer.BYTES),
+                    "Invalid number of symbols " + symbolCount, path);
+            final var symbols = new String[symbolCount];
+            final var columns = new int[symbolCount];
+            for (int i = 0; i < symbolCount; i++) {
+                final var length = buffer.getInt();
+                check(length >= 0 && length <= buffer.remaining(), "Invalid symbol length " + length, path);
+                final var bytes = new byte[length];
+                buffer.get(bytes);
+                symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+                columns[i] = buffer.getInt();
+            }
+
+            final var columnCount = buffer.getInt();
+            final var stateCount = buffer.getInt();
+            final var startState = buffer.getInt();
+            check(columnCount >= 0, "Invalid number of columns " + columnCount, path);
+            check(stateCount > 0, "Invalid number of states " + stateCount, path);
+            check(startState >= 0 && startState < stateCount, "Invalid start state " + startState, path);
+            for (var column : columns) {
+                check(column >= 0 && column < columnCount, "Invalid column " + column, path);
+            }
+
+            buffer.position((buffer.position() + Long.BYTES - 1) / Long.BYTES * Long.BYTES);
+            final var acceptingStatesSize = (long) getAcceptingStatesLength(stateCount) * Long.BYTES;
+            final var transitionsSize = Math.multiplyExact(Math.multiplyExact((long) stateCount, columnCount),
+                    (long) Integer.BYTES);
+            check(acceptingStatesSize + transitionsSize <= buffer.remaining(), "Truncated automaton file", path);
+
+            final var acceptingStates = slice(buffer, (int) acceptingStatesSize).asLongBuffer();
+            final var transitions = slice(buffer, (int) transitionsSize).asIntBuffer();
+            for (int i = 0; i < transitions.limit(); i++) {
+                final var target = transitions.get(i);
+                check(target >= DFA.DEAD_STATE && target < stateCount, "Invalid transition target " + target, path);
+            }
+
+            // symbols are interned only once the whole file is known to be valid
+            final var symbolIds = new int[symbolCount];
+            var maxSymbol = -1;
+            for (int i = 0; i < symbolCount; i++) {
+                symbolIds[i] = alphabet.intern(symbols[i]);
+                maxSymbol = Math.max(maxSymbol, symbolIds[i]);
+            }
+            final var symbolColumns = new int[maxSymbol + 1];
+            Arrays.fill(symbolColumns, NO_COLUMN);
+            for (int i = 0; i < symbolCount; i++) {
+                symbolColumns[symbolIds[i]] = columns[i];
+            }
+
+            return new MappedDFA(alphabet, symbolColumns, columnCount, stateCount, startState,
+                    acceptingStates, transitions);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed automaton file: " + path, e);
+        }
+    }
+
+    private static void check(boolean condition, String message, Path path) throws IOException {
+        if (!condition) {
+            throw new IOException(message + ": " + path);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        final var slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    static int getAcceptingStatesLength(int stateCount) {
+        return (stateCount + 63) >>> 6;
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = alphabet.encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        var state = startState;
+        for (int i = from; i < to; i++) {
+            state = step(state, symbols[i]);
+            if (state == DFA.DEAD_STATE) {
+                return false;
+            }
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+
+        var state = startState;
+        var end = isAccepting(state) ? from : NFAProgram.NO_MATCH;
+        for (int i = from; i < to; i++) {
+            state = step(state, symbols[i]);
+            if (state == DFA.DEAD_STATE) {
+                break;
+            }
+            if (isAccepting(state)) {
+                end = i + 1;
+            }
+        }
+        return end == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, end);
+    }
+
+    private int step(int state, int symbol) {
+        if (symbol < 0 || symbol >= symbolColumns.length || symbolColumns[symbol] == NO_COLUMN) {
+            return DFA.DEAD_STATE;
+        }
+        return transitions.get(state * columnCount + symbolColumns[symbol]);
+    }
+
+    private boolean isAccepting(int state) {
+        return (acceptingStates.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Get the alphabet used to encode symbols consumed by the automaton.
+     *
+     * @return the alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Get the number of states of the automaton, not including the implicit dead state.
+     *
+     * @return the number of states.
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+}
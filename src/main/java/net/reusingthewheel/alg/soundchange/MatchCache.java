@@ -0,0 +1,443 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of match results, keyed by an automaton and a sequence of symbol identifiers.
+ *
+ * Words of running text follow a Zipfian distribution, so a small number of word forms makes up most of
+ * the lookups. The cache keeps them using the W-TinyLFU policy: new entries enter a small LRU window, and
+ * an entry leaving the window is admitted to the main segmented LRU only if it has been requested more often
+ * than the entry it would evict. Frequencies are estimated by a count-min sketch with small counters that
+ * are periodically halved, so the cache adapts when the distribution changes. A scan of words seen only once
+ * passes through the window without evicting frequent words.
+ *
+ * The cache is split into shards selected by the hash of a key, each with its own lock, sketch and LRU queues,
+ * so it can be shared by any number of threads without a global lock. Results are computed outside of the locks.
+ * Automata are compared by identity, so each automaton should be compiled once and shared.
+ *
+ * A lookup hashes and compares the whole sequence, so the cache pays off for automata matched by simulating
+ * the NFA, rather than for deterministic automata, which match short words faster than they can be looked up.
+ * A SoundChangeEngine given a cache uses it only to check contexts of rules that could not be determinized.
+ */
+public final class MatchCache {
+    private static final int ABSENT = Integer.MIN_VALUE;
+    private static final int IS_MATCH = 0;
+    private static final int MATCHING_PREFIX = 1;
+    private static final int MATCHING_SUFFIX = 2;
+    private static final int MIN_SHARD_SIZE = 64;
+
+    private final int maxSize;
+    private final Shard[] shards;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Create a cache with a number of shards suited to the number of available processors.
+     *
+     * @param maxSize the maximum number of cached results.
+     */
+    public MatchCache(int maxSize) {
+        this(maxSize, getDefaultShardCount(maxSize));
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of cached results.
+     * @param shardCount the number of shards, a power of two not greater than the maximum size.
+     */
+    MatchCache(int maxSize, int shardCount) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size must be at least 1, got " + maxSize);
+        }
+        if (Integer.bitCount(shardCount) != 1 || shardCount > maxSize) {
+            throw new IllegalArgumentException("Invalid number of shards: " + shardCount);
+        }
+        this.maxSize = maxSize;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // the first shards take the remainder, so the sizes add up to the maximum size
+            shards[i] = new Shard(maxSize / shardCount + (i < maxSize % shardCount ? 1 : 0));
+        }
+    }
+
+    private static int getDefaultShardCount(int maxSize) {
+        final var shardCount = Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+        return Math.max(1, Math.min(shardCount, Integer.highestOneBit(Math.max(1, maxSize / MIN_SHARD_SIZE))));
+    }
+
+    /**
+     * Check if an automaton reaches an accepting state after consuming all of the given symbols, using a cached
+     * result if there is one.
+     *
+     * @param automaton an automaton.
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     * @see CompiledAutomaton#isMatch(int[], int, int)
+     */
+    public boolean isMatch(CompiledAutomaton automaton, int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var hash = hash(automaton, IS_MATCH, symbols, from, to);
+        final var shard = getShard(hash);
+        final var cached = shard.get(automaton, IS_MATCH, symbols, from, to, hash);
+        if (cached != ABSENT) {
+            hitCount.increment();
+            return cached != 0;
+        }
+
+        missCount.increment();
+        final var result = automaton.isMatch(symbols, from, to);
+        shard.put(new Key(automaton, IS_MATCH, Arrays.copyOfRange(symbols, from, to), hash), result ? 1 : 0);
+        return result;
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning such as an automaton reaches
+     * an accepting state after consuming the subsequence, using a cached result if there is one.
+     *
+     * @param automaton an automaton.
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     * @see CompiledAutomaton#getMatchingPrefix(int[], int, int)
+     */
+    public MatchSpan getMatchingPrefix(CompiledAutomaton automaton, int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var hash = hash(automaton, MATCHING_PREFIX, symbols, from, to);
+        final var shard = getShard(hash);
+        // the length of the match is cached, so results are independent of the position of the range
+        final var cached = shard.get(automaton, MATCHING_PREFIX, symbols, from, to, hash);
+        if (cached != ABSENT) {
+            hitCount.increment();
+            return cached == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, from + cached);
+        }
+
+        missCount.increment();
+        final var result = automaton.getMatchingPrefix(symbols, from, to);
+        shard.put(new Key(automaton, MATCHING_PREFIX, Arrays.copyOfRange(symbols, from, to), hash),
+                result.isMatchDetected() ? result.getLength() : NFAProgram.NO_MATCH);
+        return result;
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols ending at its end such as an automaton reaches
+     * an accepting state after consuming the subsequence, using a cached result if there is one.
+     *
+     * @param automaton an automaton.
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     * @see CompiledAutomaton#getMatchingSuffix(int[], int, int)
+     */
+    public MatchSpan getMatchingSuffix(CompiledAutomaton automaton, int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var hash = hash(automaton, MATCHING_SUFFIX, symbols, from, to);
+        final var shard = getShard(hash);
+        final var cached = shard.get(automaton, MATCHING_SUFFIX, symbols, from, to, hash);
+        if (cached != ABSENT) {
+            hitCount.increment();
+            return cached == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(to - cached, to);
+        }
+
+        missCount.increment();
+        final var result = automaton.getMatchingSuffix(symbols, from, to);
+        shard.put(new Key(automaton, MATCHING_SUFFIX, Arrays.copyOfRange(symbols, from, to), hash),
+                result.isMatchDetected() ? result.getLength() : NFAProgram.NO_MATCH);
+        return result;
+    }
+
+    private Shard getShard(int hash) {
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private static int hash(CompiledAutomaton automaton, int operation, int[] symbols, int from, int to) {
+        var hash = 31 * System.identityHashCode(automaton) + operation;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + symbols[i];
+        }
+        // spread the bits, so that similar sequences fall into different shards and sketch counters
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 15);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of cached results.
+     *
+     * @return the sum of sizes of the shards.
+     */
+    public int size() {
+        var size = 0;
+        for (var shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the number of results evicted or not admitted to the cache.
+     *
+     * @return the number of results.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the fraction of lookups answered with a cached result.
+     *
+     * @return the hit rate, or 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        final var hits = getHitCount();
+        final var lookups = hits + getMissCount();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * A key of a cached result. Cached keys own a copy of their symbols, while the probe key of a shard refers
+     * to a range of symbols being looked up, so lookups do not copy the symbols.
+     */
+    private static final class Key {
+        private CompiledAutomaton automaton;
+        private int operation;
+        private int[] symbols;
+        private int from;
+        private int to;
+        private int hash;
+
+        private Key() {
+        }
+
+        private Key(CompiledAutomaton automaton, int operation, int[] symbols, int hash) {
+            set(automaton, operation, symbols, 0, symbols.length, hash);
+        }
+
+        private void set(CompiledAutomaton automaton, int operation, int[] symbols, int from, int to, int hash) {
+            this.automaton = automaton;
+            this.operation = operation;
+            this.symbols = symbols;
+            this.from = from;
+            this.to = to;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final var other = (Key) o;
+            return hash == other.hash && automaton == other.automaton && operation == other.operation
+                    && Arrays.equals(symbols, from, to, other.symbols, other.from, other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+        private final Key key;
+        private final int value;
+        private Queue queue;
+        private Node previous;
+        private Node next;
+
+        private Node(Key key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes in order of their use, from the least recently used one.
+     */
+    private static final class Queue {
+        private final Node head = new Node(null, 0);
+        private int size;
+
+        private Queue() {
+            head.previous = head;
+            head.next = head;
+        }
+
+        private void addLast(Node node) {
+            node.queue = this;
+            node.previous = head.previous;
+            node.next = head;
+            head.previous.next = node;
+            head.previous = node;
+            size++;
+        }
+
+        private void remove(Node node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+        }
+
+        private Node peekFirst() {
+            return head.next == head ? null : head.next;
+        }
+    }
+
+    private final class Shard {
+        private final Map<Key, Node> nodes = new HashMap<>();
+        private final Key probe = new Key();
+        private final Queue window = new Queue();
+        private final Queue probation = new Queue();
+        private final Queue protectedQueue = new Queue();
+        private final FrequencySketch sketch;
+        private final int windowMaxSize;
+        private final int mainMaxSize;
+        private final int protectedMaxSize;
+
+        private Shard(int maxSize) {
+            this.windowMaxSize = Math.max(1, maxSize / 100);
+            this.mainMaxSize = maxSize - windowMaxSize;
+            this.protectedMaxSize = mainMaxSize * 4 / 5;
+            this.sketch = new FrequencySketch(maxSize);
+        }
+
+        private synchronized int get(CompiledAutomaton automaton, int operation, int[] symbols, int from, int to,
+                                     int hash) {
+            sketch.increment(hash);
+            probe.set(automaton, operation, symbols, from, to, hash);
+            final var node = nodes.get(probe);
+            probe.set(null, 0, null, 0, 0, 0);
+            if (node == null) {
+                return ABSENT;
+            }
+
+            final var queue = node.queue;
+            queue.remove(node);
+            if (queue == window) {
+                window.addLast(node);
+            } else {
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedMaxSize) {
+                    final var demoted = protectedQueue.peekFirst();
+                    protectedQueue.remove(demoted);
+                    probation.addLast(demoted);
+                }
+            }
+            return node.value;
+        }
+
+        private synchronized void put(Key key, int value) {
+            if (nodes.containsKey(key)) {
+                // another thread has computed the same result
+                return;
+            }
+            final var node = new Node(key, value);
+            nodes.put(key, node);
+            window.addLast(node);
+            if (window.size <= windowMaxSize) {
+                return;
+            }
+
+            final var candidate = window.peekFirst();
+            window.remove(candidate);
+            if (probation.size + protectedQueue.size < mainMaxSize) {
+                probation.addLast(candidate);
+                return;
+            }
+            var victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+            }
+            if (victim != null && sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash)) {
+                victim.queue.remove(victim);
+                nodes.remove(victim.key);
+                probation.addLast(candidate);
+            } else {
+                nodes.remove(candidate.key);
+            }
+            evictionCount.increment();
+        }
+
+        private synchronized int size() {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * A count-min sketch estimating how often keys have been requested, with four rows of 4-bit counters.
+     * When the number of increments reaches ten times the size of the shard, all counters are halved.
+     */
+    private static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97CB3127, 0xB0E0D8E3, 0xC2B2AE35, 0x85EBCA6B};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maxSize) {
+            final var width = Math.max(16, Integer.highestOneBit(Math.max(1, maxSize) - 1) << 2);
+            this.counters = new byte[ROWS * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(1, maxSize);
+        }
+
+        private void increment(int hash) {
+            for (int row = 0; row < ROWS; row++) {
+                final var index = getIndex(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                }
+            }
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int hash) {
+            var frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counters[getIndex(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int getIndex(int hash, int row) {
+            var index = hash * SEEDS[row];
+            index ^= index >>> 16;
+            return row * (mask + 1) + (index & mask);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done while matching symbols with an automaton.
+ *
+ * Most of the counters describe simulation of the nondeterministic automaton, with NFAProgram, Matcher
+ * and LazyDFA. Matching with transition tables, like CompiledAutomaton does with the deterministic or
+ * the bit-parallel form of the automaton, updates only the number of symbols consumed, the longest prefix
+ * scan and the number of table lookups.
+ *
+ * Instrumentation is enabled by setting the system property {@value #ENABLED_PROPERTY} to true when starting
+ * the JVM. The check is a static final constant, so when instrumentation is disabled, the JIT compiler removes
+ * the code updating the counters from matching loops and all automata share a single instance that is never
+ * updated.
+ *
+ * The counters can be updated by many threads at once without contention.
+ */
+public final class MatchMetrics {
+    /**
+     * The name of the system property enabling instrumentation.
+     */
+    public static final String ENABLED_PROPERTY = "net.reusingthewheel.alg.soundchange.metrics";
+
+    static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final MatchMetrics DISABLED = new MatchMetrics();
+
+    private final LongAdder symbolsConsumed = new LongAdder();
+    private final LongAccumulator peakStateSetSize = new LongAccumulator(Math::max, 0);
+    private final LongAdder closureExpansions = new LongAdder();
+    private final LongAccumulator longestPrefixScan = new LongAccumulator(Math::max, 0);
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder tableLookups = new LongAdder();
+
+    private MatchMetrics() {
+    }
+
+    /**
+     * Create counters for an automaton.
+     *
+     * @return new counters, or an instance shared by all automata if instrumentation is disabled.
+     */
+    static MatchMetrics newInstance() {
+        return ENABLED ? new MatchMetrics() : DISABLED;
+    }
+
+    /**
+     * Check if instrumentation is enabled.
+     *
+     * @return true if the counters are updated during matching.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    void recordSymbol(int stateSetSize) {
+        symbolsConsumed.increment();
+        peakStateSetSize.accumulate(stateSetSize);
+    }
+
+    void recordSymbols(int count) {
+        symbolsConsumed.add(count);
+    }
+
+    void recordTableLookups(int count) {
+        tableLookups.add(count);
+    }
+
+    void recordClosureExpansions(int count) {
+        closureExpansions.add(count);
+    }
+
+    void recordPrefixScan(int length) {
+        longestPrefixScan.accumulate(length);
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Get current values of the counters. Values updated concurrently with taking the snapshot may or may not
+     * be included in it.
+     *
+     * @return a snapshot of the counters.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(symbolsConsumed.sum(), peakStateSetSize.get(), closureExpansions.sum(),
+                longestPrefixScan.get(), cacheHits.sum(), cacheMisses.sum(), tableLookups.sum());
+    }
+
+    /**
+     * Set all counters to zero.
+     */
+    public void reset() {
+        symbolsConsumed.reset();
+        peakStateSetSize.reset();
+        closureExpansions.reset();
+        longestPrefixScan.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        tableLookups.reset();
+    }
+
+    /**
+     * Values of the counters at some point in time.
+     */
+    public static final class Snapshot {
+        private final long symbolsConsumed;
+        private final long peakStateSetSize;
+        private final long closureExpansions;
+        private final long longestPrefixScan;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final long tableLookups;
+
+        private Snapshot(long symbolsConsumed, long peakStateSetSize, long closureExpansions, long longestPrefixScan,
+                         long cacheHits, long cacheMisses, long tableLookups) {
+            this.symbolsConsumed = symbolsConsumed;
+            this.peakStateSetSize = peakStateSetSize;
+            this.closureExpansions = closureExpansions;
+            this.longestPrefixScan = longestPrefixScan;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.tableLookups = tableLookups;
+        }
+
+        /**
+         * Get the number of symbols consumed by the automaton.
+         *
+         * @return the number of symbols.
+         */
+        public long getSymbolsConsumed() {
+            return symbolsConsumed;
+        }
+
+        /**
+         * Get the largest number of states the simulated automaton has been in at once.
+         *
+         * @return the number of states.
+         */
+        public long getPeakStateSetSize() {
+            return peakStateSetSize;
+        }
+
+        /**
+         * Get the number of states added to state sets by following empty symbol transitions, including
+         * the ones added while building deterministic automata.
+         *
+         * @return the number of states.
+         */
+        public long getClosureExpansions() {
+            return closureExpansions;
+        }
+
+        /**
+         * Get the largest number of symbols consumed while searching for a single matching prefix.
+         *
+         * @return the number of symbols.
+         */
+        public long getLongestPrefixScan() {
+            return longestPrefixScan;
+        }
+
+        /**
+         * Get the number of transitions found in the cache of a lazily built deterministic automaton.
+         *
+         * @return the number of transitions.
+         */
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        /**
+         * Get the number of transitions that had to be computed by a lazily built deterministic automaton.
+         *
+         * @return the number of transitions.
+         */
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        /**
+         * Get the number of lookups in transition tables of the deterministic or the bit-parallel form
+         * of the automaton.
+         *
+         * @return the number of lookups.
+         */
+        public long getTableLookups() {
+            return tableLookups;
+        }
+
+        @Override
+        public String toString() {
+            return "MatchMetrics.Snapshot{" +
+                    "symbolsConsumed=" + symbolsConsumed +
+                    ", peakStateSetSize=" + peakStateSetSize +
+                    ", closureExpansions=" + closureExpansions +
+                    ", longestPrefixScan=" + longestPrefixScan +
+                    ", cacheHits=" + cacheHits +
+                    ", cacheMisses=" + cacheMisses +
+                    ", tableLookups=" + tableLookups +
+                    '}';
+        }
+    }
+}
@@ -19,6 +19,10 @@ public class MatchResult {
         return matchedSymbols;
     }
 
+    public void setMatchedSymbols(List<String> matchedSymbols) {
+        this.matchedSymbols = new ArrayList<>(matchedSymbols);
+    }
+
     public void prependMatchingSymbol(String symbol) {
         this.matchedSymbols.add(0, symbol);
     }
@@ -0,0 +1,81 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.Objects;
+
+/**
+ * A range of symbols matched by an automaton, identified by offsets into the matched sequence.
+ */
+public final class MatchSpan {
+    private static final MatchSpan NO_MATCH = new MatchSpan(false, 0, 0);
+
+    private final boolean matchDetected;
+    private final int start;
+    private final int end;
+
+    private MatchSpan(boolean matchDetected, int start, int end) {
+        this.matchDetected = matchDetected;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Create a span of a match.
+     *
+     * @param start the index of the first matched symbol, inclusive.
+     * @param end the index of the last matched symbol, exclusive.
+     * @return an instance of MatchSpan
+     */
+    public static MatchSpan of(int start, int end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid span: [" + start + ", " + end + ")");
+        }
+        return new MatchSpan(true, start, end);
+    }
+
+    /**
+     * Get the span representing the absence of a match.
+     *
+     * @return an instance of MatchSpan
+     */
+    public static MatchSpan noMatch() {
+        return NO_MATCH;
+    }
+
+    public boolean isMatchDetected() {
+        return matchDetected;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLength() {
+        return end - start;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MatchSpan)) {
+            return false;
+        }
+        final var other = (MatchSpan) o;
+        return matchDetected == other.matchDetected && start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(matchDetected, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return matchDetected ? "[" + start + ", " + end + ")" : "no match";
+    }
+}
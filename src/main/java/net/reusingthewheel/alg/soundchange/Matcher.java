@@ -0,0 +1,192 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A matching session consuming symbols one at a time.
+ *
+ * The matcher keeps the set of states the automaton is in between calls, so symbols can be pushed
+ * as they arrive, without collecting them first. Consuming a symbol does not allocate any objects.
+ * A matcher can be reused for any number of words by resetting it, but it must not be used
+ * by multiple threads at the same time.
+ */
+public final class Matcher {
+    private final NFAProgram program;
+    private final int[] stack;
+    private long[] currentStates;
+    private long[] nextStates;
+    private boolean dead;
+
+    Matcher(NFAProgram program) {
+        this.program = program;
+        this.stack = new int[program.getStateCount()];
+        this.currentStates = program.newStateSet();
+        this.nextStates = program.newStateSet();
+        reset();
+    }
+
+    /**
+     * Return to the start state of the automaton, discarding all symbols consumed so far.
+     */
+    public void reset() {
+        Arrays.fill(currentStates, 0L);
+        program.addClosure(program.getStartState(), currentStates, stack);
+        dead = false;
+    }
+
+    /**
+     * Consume a symbol.
+     *
+     * @param symbol a symbol.
+     * @return false if no state of the automaton can be reached anymore.
+     */
+    public boolean feed(String symbol) {
+        return feed(program.getAlphabet().getId(symbol));
+    }
+
+    /**
+     * Consume a symbol.
+     *
+     * @param symbol an identifier of a symbol from the alphabet of the automaton.
+     * @return false if no state of the automaton can be reached anymore.
+     */
+    public boolean feed(int symbol) {
+        if (dead) {
+            return false;
+        }
+        if (!program.step(currentStates, symbol, nextStates, stack)) {
+            dead = true;
+            return false;
+        }
+
+        final var swap = currentStates;
+        currentStates = nextStates;
+        nextStates = swap;
+        if (MatchMetrics.ENABLED) {
+            program.getMetrics().recordSymbol(NFAProgram.countStates(currentStates));
+        }
+        return true;
+    }
+
+    /**
+     * Check if the automaton is in an accepting state after consuming the symbols fed so far.
+     *
+     * @return true if the symbols consumed since the last reset are matched.
+     */
+    public boolean isAccepting() {
+        return !dead && program.containsAcceptingState(currentStates);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     * The matcher is reset before consuming them.
+     *
+     * @param symbols an array of symbol identifiers.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    boolean matches(int[] symbols, int from, int to) {
+        reset();
+        for (int i = from; i < to; i++) {
+            if (!feed(symbols[i])) {
+                return false;
+            }
+        }
+
+        return isAccepting();
+    }
+
+    /**
+     * Get the end of the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     * The matcher is reset before consuming them.
+     *
+     * @param symbols an array of symbol identifiers.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the index following the last symbol of the matching subsequence or NFAProgram.NO_MATCH.
+     */
+    int getMatchingPrefixEnd(int[] symbols, int from, int to) {
+        reset();
+        var end = isAccepting() ? from : NFAProgram.NO_MATCH;
+        var i = from;
+        for (; i < to && feed(symbols[i]); i++) {
+            if (isAccepting()) {
+                end = i + 1;
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            program.getMetrics().recordPrefixScan(i - from);
+        }
+
+        return end;
+    }
+
+    /**
+     * Get the start of the longest subsequence of given range of symbols ending at its end such as
+     * the automaton reaches an accepting state after consuming the subsequence backwards, starting
+     * from the last symbol. The matcher is reset before consuming them.
+     *
+     * @param symbols an array of symbol identifiers.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the index of the first symbol of the matching subsequence or NFAProgram.NO_MATCH.
+     */
+    int getMatchingSuffixStart(int[] symbols, int from, int to) {
+        reset();
+        var start = isAccepting() ? to : NFAProgram.NO_MATCH;
+        for (int i = to - 1; i >= from && feed(symbols[i]); i--) {
+            if (isAccepting()) {
+                start = i;
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming any subsequence of given range
+     * of symbols ending at its end backwards, starting from the last symbol. The matcher is reset before
+     * consuming them, and stops at the first accepting state.
+     *
+     * @param symbols an array of symbol identifiers.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    boolean hasMatchingSuffix(int[] symbols, int from, int to) {
+        reset();
+        if (isAccepting()) {
+            return true;
+        }
+        for (int i = to - 1; i >= from && feed(symbols[i]); i--) {
+            if (isAccepting()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Collect tags of accepting states the automaton is in.
+     *
+     * @param tags the set to add the tags to.
+     */
+    void collectAcceptingTags(BitSet tags) {
+        if (!dead) {
+            program.collectAcceptingTags(currentStates, tags);
+        }
+    }
+
+    /**
+     * Check if the automaton cannot reach any state, so no further symbols can lead to a match.
+     *
+     * @return true if no states are live.
+     */
+    public boolean isDead() {
+        return dead;
+    }
+}
@@ -1,14 +1,20 @@
 package net.reusingthewheel.alg.soundchange;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * A nondeterministic finite state automaton
+ *
+ * Automata are immutable: the factory methods copy the states of their operands they need to connect
+ * instead of modifying them, so an automaton can be used as an operand any number of times and shared
+ * between threads. The compiled forms of an automaton are built once, on first use.
  */
 public class NFA {
-    private State start;
-    private State end;
+    private final State start;
+    private final State end;
+    private final MatchMetrics metrics = MatchMetrics.newInstance();
+    private volatile NFAProgram program;
+    private volatile CompiledAutomaton compiled;
 
     private NFA(State start, State end) {
         this.start = start;
@@ -37,7 +43,31 @@ public class NFA {
     public static NFA newSymbolNFA(String symbol) {
         var start = new State();
         var end = new State();
-        start.addSymbolTransitions(symbol, end);
+        start.addSymbolTransitions(Alphabet.getDefault().intern(symbol), end);
+
+        return new NFA(start, end);
+    }
+
+    /**
+     * Create an automaton that allows for a transition only after consuming any of the given symbols.
+     *
+     * The symbols share a single transition, so a class like "any vowel" takes two states regardless
+     * of the number of symbols in it.
+     *
+     * @param symbols symbols of the class, one of which is necessary to be consumed for the automaton to reach
+     *                its end state.
+     * @return an instance of NFA
+     */
+    public static NFA newSymbolClassNFA(Set<String> symbols) {
+        final var alphabet = Alphabet.getDefault();
+        final var symbolIds = new BitSet();
+        for (var symbol : symbols) {
+            symbolIds.set(alphabet.intern(symbol));
+        }
+
+        var start = new State();
+        var end = new State();
+        start.addSymbolClassTransition(symbolIds, end);
 
         return new NFA(start, end);
     }
@@ -50,9 +80,10 @@ public class NFA {
      * @return an instance of NFA
      */
     public static NFA newConcatenateNFA(NFA first, NFA second) {
-        first.end.addEmptySymbolTransition(second.start);
+        final var firstCopy = first.copy();
+        firstCopy.end.addEmptySymbolTransition(second.start);
 
-        return new NFA(first.start, second.end);
+        return new NFA(firstCopy.start, second.end);
     }
 
     /**
@@ -63,13 +94,33 @@ public class NFA {
      * @return an instance of NFA
      */
     public static NFA newUnionNFA(NFA first, NFA second) {
-        var start = new State();
-        start.addEmptySymbolTransition(first.start);
-        start.addEmptySymbolTransition(second.start);
+        return newUnionNFA(List.of(first, second));
+    }
 
+    /**
+     * Create an automaton that reaches its final state if any of the given automata does.
+     *
+     * Each operand is copied once, so joining many alternatives with a single call takes time linear
+     * in their total size, unlike nesting unions of two automata, which copies the nested unions again.
+     *
+     * @param automata the alternatives, at least one.
+     * @return an instance of NFA
+     */
+    public static NFA newUnionNFA(List<NFA> automata) {
+        if (automata.isEmpty()) {
+            throw new IllegalArgumentException("A union requires at least one automaton");
+        }
+        if (automata.size() == 1) {
+            return automata.get(0);
+        }
+
+        var start = new State();
         var end = new State();
-        first.end.addEmptySymbolTransition(end);
-        second.end.addEmptySymbolTransition(end);
+        for (var automaton : automata) {
+            final var copy = automaton.copy();
+            start.addEmptySymbolTransition(copy.start);
+            copy.end.addEmptySymbolTransition(end);
+        }
 
         return new NFA(start, end);
     }
@@ -81,6 +132,8 @@ public class NFA {
      * @return an instance of NFA
      */
     public static NFA newKleeneClosureNFA(NFA automaton) {
+        automaton = automaton.copy();
+
         var start = new State();
         var end = new State();
 
@@ -99,6 +152,8 @@ public class NFA {
      * @return an instance of NFA
      */
     public static NFA newZeroOrOneNFA(NFA automaton) {
+        automaton = automaton.copy();
+
         var start = new State();
         var end = new State();
 
@@ -120,30 +175,188 @@ public class NFA {
     }
 
     /**
-     * Check if the automaton reaches its final state after consuming all of the given symbols.
+     * Create an automaton that reaches its final state after consuming, in reverse order, a sequence of symbols
+     * this automaton accepts.
      *
-     * @param symbols a list of symbols.
-     * @return true if the final state has been reached.
+     * Each transition of the automaton is reversed, so the final state becomes the start state. A new final
+     * state is reached from the old start state without consuming any symbol.
+     *
+     * @return an instance of NFA
      */
-    public boolean isMatch(List<String> symbols) {
-        List<State> currentStates = new ArrayList<>();
-        addNextState(this.start, currentStates, new ArrayList<>());
+    public NFA reverse() {
+        final var copies = new IdentityHashMap<State, State>();
+        final var pending = new ArrayDeque<State>();
+        copies.put(start, new State());
+        pending.add(start);
+
+        while (!pending.isEmpty()) {
+            final var state = pending.poll();
+            final var copy = copies.get(state);
+            for (var target : state.getEmptySymbolTransitions()) {
+                copies.computeIfAbsent(target, t -> {
+                    pending.add(t);
+                    return new State();
+                }).addEmptySymbolTransition(copy);
+            }
+            for (var transition : state.getSymbolTransitions().entrySet()) {
+                copies.computeIfAbsent(transition.getValue(), t -> {
+                    pending.add(t);
+                    return new State();
+                }).addSymbolTransitions(transition.getKey(), copy);
+            }
+            for (var transition : state.getSymbolClassTransitions().entrySet()) {
+                copies.computeIfAbsent(transition.getValue(), t -> {
+                    pending.add(t);
+                    return new State();
+                }).addSymbolClassTransition(transition.getKey(), copy);
+            }
+        }
 
+        final var reversedEnd = new State();
+        copies.get(start).addEmptySymbolTransition(reversedEnd);
+        return new NFA(copies.computeIfAbsent(end, e -> new State()), reversedEnd);
+    }
+
+    /**
+     * Create a copy of the automaton, with new states and the same transitions between them.
+     * The copy can be modified without affecting this automaton.
+     *
+     * @return an instance of NFA
+     */
+    private NFA copy() {
+        final var copies = new IdentityHashMap<State, State>();
+        final var pending = new ArrayDeque<State>();
+        for (var state : List.of(start, end)) {
+            if (copies.putIfAbsent(state, new State()) == null) {
+                pending.add(state);
+            }
+        }
+
+        while (!pending.isEmpty()) {
+            final var state = pending.poll();
+            final var copy = copies.get(state);
+            for (var target : state.getEmptySymbolTransitions()) {
+                copy.addEmptySymbolTransition(copies.computeIfAbsent(target, t -> {
+                    pending.add(t);
+                    return new State();
+                }));
+            }
+            for (var transition : state.getSymbolTransitions().entrySet()) {
+                copy.addSymbolTransitions(transition.getKey(), copies.computeIfAbsent(transition.getValue(), t -> {
+                    pending.add(t);
+                    return new State();
+                }));
+            }
+            for (var transition : state.getSymbolClassTransitions().entrySet()) {
+                copy.addSymbolClassTransition(transition.getKey(), copies.computeIfAbsent(transition.getValue(), t -> {
+                    pending.add(t);
+                    return new State();
+                }));
+            }
+        }
+
+        return new NFA(copies.get(start), copies.get(end));
+    }
 
-        for (String s : symbols) {
-            List<State> nextStates = new ArrayList<>();
+    /**
+     * Compile the automaton into a deterministic one with a table-driven transition function.
+     *
+     * @return an instance of DFA accepting the same symbol sequences as this automaton.
+     */
+    public DFA toDFA() {
+        return DFA.fromProgram(toProgram());
+    }
 
-            currentStates.forEach( cs -> {
-                var nextState = cs.getSymbolTransitions().get(s);
-                if (nextState != null) {
-                    addNextState(nextState, nextStates, new ArrayList<>());
-                }
-            });
+    /**
+     * Create a deterministic automaton built lazily while matching, for automata too large to be determinized
+     * up front. Unlike the other compiled forms, it is mutable, so each thread needs its own instance.
+     *
+     * @param maxStates the maximum number of cached states.
+     * @return a new instance of LazyDFA accepting the same symbol sequences as this automaton.
+     */
+    public LazyDFA toLazyDFA(int maxStates) {
+        return LazyDFA.withStateLimit(toProgram(), maxStates);
+    }
 
-            currentStates = nextStates;
+    /**
+     * Compile the automaton into a flat array representation simulated without following references
+     * between states. The result is built once and shared by all callers.
+     *
+     * @return an instance of NFAProgram accepting the same symbol sequences as this automaton.
+     */
+    public NFAProgram toProgram() {
+        var result = program;
+        if (result == null) {
+            result = NFAProgram.fromNFA(this.start, getAlphabet(), metrics);
+            program = result;
         }
+        return result;
+    }
 
-        return currentStates.stream().anyMatch(State::isFinal);
+    /**
+     * Compile the automaton into its frozen form used for matching. The result is built once and shared
+     * by all callers.
+     *
+     * @return an instance of CompiledAutomaton accepting the same symbol sequences as this automaton.
+     */
+    public CompiledAutomaton compile() {
+        var result = compiled;
+        if (result == null) {
+            result = CompiledAutomaton.of(toProgram());
+            compiled = result;
+        }
+        return result;
+    }
+
+    /**
+     * Create a matching session consuming symbols one at a time.
+     *
+     * @return a new matcher in the start state of the automaton.
+     */
+    public Matcher newMatcher() {
+        return toProgram().newMatcher();
+    }
+
+    /**
+     * Get the alphabet used to encode symbols consumed by the automaton.
+     *
+     * @return the alphabet shared by all automata created with the factory methods.
+     */
+    public Alphabet getAlphabet() {
+        return Alphabet.getDefault();
+    }
+
+    /**
+     * Get counters of the work done while matching with the automaton, shared by all of its compiled forms.
+     * They are updated only if instrumentation is enabled.
+     *
+     * @return the counters.
+     */
+    public MatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Check if the automaton reaches its final state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if the final state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = getAlphabet().encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches its final state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if the final state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        return compile().isMatch(symbols, from, to);
     }
 
     /**
@@ -158,64 +371,101 @@ public class NFA {
         if (symbols.isEmpty()) {
             throw new IllegalArgumentException("A sequence of symbols cannot be empty");
         }
-        return getMatchingPrefix(symbols, this.start);
-    }
+        final var encoded = getAlphabet().encode(symbols);
+        final var span = getMatchingPrefix(encoded, 0, encoded.length);
 
-    private MatchResult getMatchingPrefix(List<String> symbols, State currentState) {
         final var result = new MatchResult();
-        if (currentState.isFinal() ) {
+        if (span.isMatchDetected()) {
             result.setMatchDetected(true);
-            return result;
+            result.setMatchedSymbols(symbols.subList(span.getStart(), span.getEnd()));
         }
-
-        final var allMatchResults = new ArrayList<MatchResult>();
-        allMatchResults.add(getMatchingPrefixByConsumingSymbol(symbols, currentState));
-        allMatchResults.addAll(
-                getAllMatchResultsFromEmptySymbolTransition(symbols, currentState)
-        );
-
-        return allMatchResults.stream()
-                .filter(MatchResult::isMatchDetected)
-                .max(Comparator.comparing(s -> s.getMatchedSymbols().size()))
-                .orElse(result);
+        return result;
     }
 
-    private MatchResult getMatchingPrefixByConsumingSymbol(List<String> symbols, State currentState) {
-        MatchResult nextResult = new MatchResult();
+    /**
+     * Get the subsequence of given sequence of symbols ending at the end of given sequence
+     * such as the automaton reaches it's final state after consuming the subsequence.
+     *
+     * @param symbols a list of symbols.
+     * @return MatchResult with information on whether the final state has been reached and the subsequence
+     * of symbols consumed in the process.
+     */
+    public MatchResult getMatchingSuffix(List<String> symbols) {
         if (symbols.isEmpty()) {
-            return nextResult;
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
         }
+        final var encoded = getAlphabet().encode(symbols);
+        final var span = getMatchingSuffix(encoded, 0, encoded.length);
 
-        final var currentSymbol = symbols.get(0);
-        final var nextState = currentState.getSymbolTransitions().get(currentSymbol);
-        if (nextState != null) {
-            List<String> nextSubsequence = symbols.subList(1, symbols.size());
-            nextResult = getMatchingPrefix(nextSubsequence, nextState);
-            nextResult.prependMatchingSymbol(currentSymbol);
+        final var result = new MatchResult();
+        if (span.isMatchDetected()) {
+            result.setMatchDetected(true);
+            result.setMatchedSymbols(symbols.subList(span.getStart(), span.getEnd()));
         }
-
-        return nextResult;
+        return result;
     }
 
-    private List<MatchResult> getAllMatchResultsFromEmptySymbolTransition(List<String> symbols, State currentState) {
-        return currentState.getEmptySymbolTransitions()
-                .stream()
-                .map( n -> getMatchingPrefix(symbols, n))
-                .collect(Collectors.toList());
+    /**
+     * Get the longest subsequence of given range of symbols ending at its end
+     * such as the automaton reaches it's final state after consuming the subsequence.
+     *
+     * The symbols are consumed backwards by the reversed automaton, starting from the end of the range,
+     * so the range is not copied.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingSuffix(int[] symbols, int from, int to) {
+        return toProgram().getMatchingSuffix(symbols, from, to);
     }
 
-    private void addNextState(State state, List<State> nextStates, List<State> visited) {
-        if (state.getEmptySymbolTransitions().isEmpty()) {
-            nextStates.add(state);
-            return;
-        }
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches it's final state after consuming the subsequence.
+     *
+     * The symbols are consumed in a single pass.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        return compile().getMatchingPrefix(symbols, from, to);
+    }
 
-        state.getEmptySymbolTransitions().forEach(s -> {
-            if (!visited.contains(s)) {
-                visited.add(s);
-                addNextState(s, nextStates, visited);
-            }
-        });
+    /**
+     * Find all non-overlapping leftmost-longest matches in given sequence of symbols.
+     *
+     * The sequence is scanned once for all starting positions of a match, rather than matching a prefix
+     * of the sequence starting at each of them.
+     *
+     * @param symbols a list of symbols.
+     * @return a list of spans of the matches, in order of their positions.
+     */
+    public List<MatchSpan> findAll(List<String> symbols) {
+        final var encoded = getAlphabet().encode(symbols);
+        return toProgram().findAll(encoded, 0, encoded.length);
     }
 
+    /**
+     * Replace all non-overlapping leftmost-longest matches in given sequence of symbols.
+     *
+     * @param symbols a list of symbols.
+     * @param replacement a list of symbols replacing each match.
+     * @return a new list of symbols.
+     */
+    public List<String> replaceAll(List<String> symbols, List<String> replacement) {
+        final var result = new ArrayList<String>();
+        var position = 0;
+        for (var span : findAll(symbols)) {
+            result.addAll(symbols.subList(position, span.getStart()));
+            result.addAll(replacement);
+            position = span.getEnd();
+        }
+        result.addAll(symbols.subList(position, symbols.size()));
+        return result;
+    }
 }
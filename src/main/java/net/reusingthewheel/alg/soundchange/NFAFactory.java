@@ -0,0 +1,344 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * A construction context building each distinct automaton only once.
+ *
+ * The factory methods mirror those of NFA, but they are hash-consed: an automaton is identified by the kind
+ * of its construction and by its operands, and structurally equal requests return the same instance, along with
+ * the compiled forms cached by it. As operands are shared instances too, checking them by identity is enough
+ * to find structurally equal automata. Requests are also canonicalized, so that equivalent constructions
+ * share an automaton as well:
+ * <ul>
+ *     <li>operands of unions are ordered and deduplicated, and a union of an automaton with itself
+ *     is the automaton,</li>
+ *     <li>concatenation with the empty symbol automaton is the other operand,</li>
+ *     <li>a class of a single symbol is the symbol,</li>
+ *     <li>closures of closures, optional automata and repetitions collapse into a single closure.</li>
+ * </ul>
+ * Sharing is limited to whole automata. The combinators of NFA copy the states of their operands, so
+ * a composite built from a shared operand holds its own copy of the operand's states, and compiling
+ * the composite compiles that copy again. Heap and compilation work are saved for patterns equal as a whole,
+ * for example an environment repeated by many rules, which share a single automaton and its compiled
+ * forms, but not for distinct patterns that only have parts in common.
+ *
+ * The factory keeps all automata it has built, so a factory should be used for a set of rules loaded together
+ * and dropped afterwards. Instances are safe for use by multiple threads.
+ */
+public final class NFAFactory {
+    private static final NFAFactory WITHOUT_SHARING = new NFAFactory(false);
+    private static final int NO_OPERAND = -1;
+
+    private final boolean sharing;
+    private final Map<Key, NFA> automata = new HashMap<>();
+    private final Map<NFA, Node> nodes = new IdentityHashMap<>();
+    private long reuseCount;
+
+    /**
+     * Create a factory sharing structurally equal automata.
+     */
+    public NFAFactory() {
+        this(true);
+    }
+
+    private NFAFactory(boolean sharing) {
+        this.sharing = sharing;
+    }
+
+    /**
+     * Get a factory building a new automaton for each request, as the factory methods of NFA do.
+     *
+     * @return the factory.
+     */
+    static NFAFactory withoutSharing() {
+        return WITHOUT_SHARING;
+    }
+
+    /**
+     * Get an automaton that allows for a transition without consuming any symbol.
+     *
+     * @return an instance of NFA
+     */
+    public NFA newEmptySymbolNFA() {
+        if (!sharing) {
+            return NFA.newEmptySymbolNFA();
+        }
+        synchronized (nodes) {
+            return intern(Kind.EMPTY, null, null, null, NFA::newEmptySymbolNFA);
+        }
+    }
+
+    /**
+     * Get an automaton that allows for a transition only after consuming the given symbol.
+     *
+     * @param symbol a symbol necessary to be consumed for the automaton to reach its end state.
+     * @return an instance of NFA
+     */
+    public NFA newSymbolNFA(String symbol) {
+        if (!sharing) {
+            return NFA.newSymbolNFA(symbol);
+        }
+        synchronized (nodes) {
+            return intern(Kind.SYMBOL, Alphabet.getDefault().intern(symbol), null, null,
+                    () -> NFA.newSymbolNFA(symbol));
+        }
+    }
+
+    /**
+     * Get an automaton that allows for a transition only after consuming any of the given symbols.
+     *
+     * @param symbols symbols of the class.
+     * @return an instance of NFA
+     */
+    public NFA newSymbolClassNFA(Set<String> symbols) {
+        if (!sharing) {
+            return NFA.newSymbolClassNFA(symbols);
+        }
+        if (symbols.size() == 1) {
+            return newSymbolNFA(symbols.iterator().next());
+        }
+        final var symbolIds = new BitSet();
+        for (var symbol : symbols) {
+            symbolIds.set(Alphabet.getDefault().intern(symbol));
+        }
+        synchronized (nodes) {
+            return intern(Kind.CLASS, symbolIds, null, null, () -> NFA.newSymbolClassNFA(symbols));
+        }
+    }
+
+    /**
+     * Get an automaton that reaches its final state if the first and then the second does.
+     *
+     * @param first the first automaton
+     * @param second the second automaton
+     * @return an instance of NFA
+     */
+    public NFA newConcatenateNFA(NFA first, NFA second) {
+        if (!sharing) {
+            return NFA.newConcatenateNFA(first, second);
+        }
+        synchronized (nodes) {
+            final var firstNode = getNode(first);
+            final var secondNode = getNode(second);
+            if (firstNode.kind == Kind.EMPTY) {
+                return second;
+            }
+            if (secondNode.kind == Kind.EMPTY) {
+                return first;
+            }
+            return intern(Kind.CONCATENATION, null, firstNode, secondNode, () -> NFA.newConcatenateNFA(first, second));
+        }
+    }
+
+    /**
+     * Get an automaton that reaches its final state if the first or the second does.
+     *
+     * @param first the first automaton
+     * @param second the second automaton
+     * @return an instance of NFA
+     */
+    public NFA newUnionNFA(NFA first, NFA second) {
+        return newUnionNFA(List.of(first, second));
+    }
+
+    /**
+     * Get an automaton that reaches its final state if any of the given automata does.
+     *
+     * @param automata the alternatives, at least one.
+     * @return an instance of NFA
+     */
+    public NFA newUnionNFA(List<NFA> automata) {
+        if (!sharing) {
+            return NFA.newUnionNFA(automata);
+        }
+        if (automata.isEmpty()) {
+            throw new IllegalArgumentException("A union requires at least one automaton");
+        }
+        synchronized (nodes) {
+            final var operands = new TreeMap<Integer, NFA>();
+            for (var automaton : automata) {
+                operands.put(getNode(automaton).id, automaton);
+            }
+            if (operands.size() == 1) {
+                return operands.firstEntry().getValue();
+            }
+            final var ordered = List.copyOf(operands.values());
+            return intern(Kind.UNION, List.copyOf(operands.keySet()), null, null, () -> NFA.newUnionNFA(ordered));
+        }
+    }
+
+    /**
+     * Get an automaton that reaches its final state if the given automaton does it 0 or more times.
+     *
+     * @param automaton the given automaton
+     * @return an instance of NFA
+     */
+    public NFA newKleeneClosureNFA(NFA automaton) {
+        if (!sharing) {
+            return NFA.newKleeneClosureNFA(automaton);
+        }
+        synchronized (nodes) {
+            final var node = getNode(automaton);
+            if (node.kind == Kind.CLOSURE) {
+                return automaton;
+            }
+            if (node.kind == Kind.ZERO_OR_ONE) {
+                return newKleeneClosureNFA(node.first);
+            }
+            if (isOneOrMore(node)) {
+                return node.second;
+            }
+            return intern(Kind.CLOSURE, null, node, null, () -> NFA.newKleeneClosureNFA(automaton));
+        }
+    }
+
+    /**
+     * Get an automaton that reaches its final state if the given automaton does it 0 or 1 time.
+     *
+     * @param automaton the given automaton
+     * @return an instance of NFA
+     */
+    public NFA newZeroOrOneNFA(NFA automaton) {
+        if (!sharing) {
+            return NFA.newZeroOrOneNFA(automaton);
+        }
+        synchronized (nodes) {
+            final var node = getNode(automaton);
+            if (node.kind == Kind.CLOSURE || node.kind == Kind.ZERO_OR_ONE) {
+                return automaton;
+            }
+            if (isOneOrMore(node)) {
+                return node.second;
+            }
+            return intern(Kind.ZERO_OR_ONE, null, node, null, () -> NFA.newZeroOrOneNFA(automaton));
+        }
+    }
+
+    /**
+     * Get an automaton that reaches its final state if the given automaton does it once or more.
+     * It is the concatenation of the automaton and its closure, sharing the closure with other requests.
+     *
+     * @param automaton the given automaton
+     * @return an instance of NFA
+     */
+    public NFA newOneOrMoreNFA(NFA automaton) {
+        if (!sharing) {
+            return NFA.newOneOrMoreNFA(automaton);
+        }
+        return newConcatenateNFA(automaton, newKleeneClosureNFA(automaton));
+    }
+
+    /**
+     * Get the number of distinct automata built by the factory.
+     *
+     * @return the number of automata.
+     */
+    public int getNodeCount() {
+        synchronized (nodes) {
+            return automata.size();
+        }
+    }
+
+    /**
+     * Get the number of requests answered with an automaton built before, instead of building a new one.
+     * It counts requests, not states: a request answered with a large automaton counts once, and its states
+     * are still copied into each composite using it.
+     *
+     * @return the number of requests.
+     */
+    public long getReuseCount() {
+        synchronized (nodes) {
+            return reuseCount;
+        }
+    }
+
+    private NFA intern(Kind kind, Object payload, Node first, Node second, Supplier<NFA> builder) {
+        final var key = new Key(kind, payload, first == null ? NO_OPERAND : first.id,
+                second == null ? NO_OPERAND : second.id);
+        final var existing = automata.get(key);
+        if (existing != null) {
+            reuseCount++;
+            return existing;
+        }
+
+        final var automaton = builder.get();
+        automata.put(key, automaton);
+        nodes.put(automaton, new Node(nodes.size(), kind, first == null ? null : first.automaton,
+                second == null ? null : second.automaton, automaton));
+        return automaton;
+    }
+
+    /**
+     * Get the node of an automaton, registering automata not built by this factory as opaque operands
+     * identified by their instance.
+     */
+    private Node getNode(NFA automaton) {
+        return nodes.computeIfAbsent(automaton, a -> new Node(nodes.size(), Kind.OPAQUE, null, null, a));
+    }
+
+    private boolean isOneOrMore(Node node) {
+        return node.kind == Kind.CONCATENATION && nodes.get(node.second).kind == Kind.CLOSURE
+                && nodes.get(node.second).first == node.first;
+    }
+
+    private enum Kind {
+        EMPTY, SYMBOL, CLASS, CONCATENATION, UNION, CLOSURE, ZERO_OR_ONE, OPAQUE
+    }
+
+    private static final class Node {
+        private final int id;
+        private final Kind kind;
+        private final NFA first;
+        private final NFA second;
+        private final NFA automaton;
+
+        private Node(int id, Kind kind, NFA first, NFA second, NFA automaton) {
+            this.id = id;
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+            this.automaton = automaton;
+        }
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final Object payload;
+        private final int first;
+        private final int second;
+
+        private Key(Kind kind, Object payload, int first, int second) {
+            this.kind = kind;
+            this.payload = payload;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final var other = (Key) o;
+            return kind == other.kind && first == other.first && second == other.second
+                    && Objects.equals(payload, other.payload);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, payload, first, second);
+        }
+    }
+}
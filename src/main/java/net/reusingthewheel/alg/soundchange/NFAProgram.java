@@ -0,0 +1,797 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+
+/**
+ * A nondeterministic finite state automaton compiled into flat arrays.
+ *
+ * States reachable from the start state of an NFA are numbered and their transitions are laid out
+ * in compressed sparse row arrays: the transitions of a state occupy a contiguous range of the
+ * transition arrays, delimited by the offsets of the state and the state following it.
+ *
+ * Symbols are partitioned into columns: symbols consumed by exactly the same transitions share a column,
+ * so tables of deterministic automata built from the program have a column per class of equivalent symbols
+ * rather than per symbol.
+ *
+ * Matching is done with Thompson simulation over sets of states represented as bitsets, so each state
+ * is visited at most once per symbol and no objects are allocated per symbol. Instances are immutable.
+ */
+public final class NFAProgram {
+    static final int NO_MATCH = -1;
+    static final int NO_TAG = -1;
+    static final int NO_COLUMN = -1;
+
+    private final Alphabet alphabet;
+    private final int startState;
+    private final int[] emptyTransitionOffsets;
+    private final int[] emptyTransitionTargets;
+    private final int[] symbolTransitionOffsets;
+    private final int[] symbolTransitionSymbols;
+    private final int[] symbolTransitionTargets;
+    private final int[] classTransitionOffsets;
+    private final int[] classTransitionClasses;
+    private final int[] classTransitionTargets;
+    private final long[][] symbolClasses;
+    private final int[] symbolColumns;
+    private final int[] columnSymbols;
+    private final long[] acceptingStates;
+    private final int[] acceptingStateTags;
+    private final MatchMetrics metrics;
+    private volatile NFAProgram reversed;
+
+    private NFAProgram(Alphabet alphabet, int startState, int[] emptyTransitionOffsets, int[] emptyTransitionTargets,
+                       int[] symbolTransitionOffsets, int[] symbolTransitionSymbols, int[] symbolTransitionTargets,
+                       int[] classTransitionOffsets, int[] classTransitionClasses, int[] classTransitionTargets,
+                       long[][] symbolClasses, long[] acceptingStates, int[] acceptingStateTags, MatchMetrics metrics) {
+        this.alphabet = alphabet;
+        this.startState = startState;
+        this.emptyTransitionOffsets = emptyTransitionOffsets;
+        this.emptyTransitionTargets = emptyTransitionTargets;
+        this.symbolTransitionOffsets = symbolTransitionOffsets;
+        this.symbolTransitionSymbols = symbolTransitionSymbols;
+        this.symbolTransitionTargets = symbolTransitionTargets;
+        this.classTransitionOffsets = classTransitionOffsets;
+        this.classTransitionClasses = classTransitionClasses;
+        this.classTransitionTargets = classTransitionTargets;
+        this.symbolClasses = symbolClasses;
+        this.symbolColumns = partitionSymbols(symbolTransitionSymbols, symbolClasses);
+        this.columnSymbols = new int[Arrays.stream(symbolColumns).max().orElse(NO_COLUMN) + 1];
+        for (int symbol = symbolColumns.length - 1; symbol >= 0; symbol--) {
+            if (symbolColumns[symbol] != NO_COLUMN) {
+                columnSymbols[symbolColumns[symbol]] = symbol;
+            }
+        }
+        this.acceptingStates = acceptingStates;
+        this.acceptingStateTags = acceptingStateTags;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Compile the automaton starting with given state.
+     *
+     * @param start the start state of a nondeterministic automaton.
+     * @param alphabet the alphabet of the automaton.
+     * @param metrics counters updated while matching with the compiled automaton.
+     * @return an instance of NFAProgram
+     */
+    static NFAProgram fromNFA(State start, Alphabet alphabet, MatchMetrics metrics) {
+        final var states = new ArrayList<State>();
+        final var stateIds = new HashMap<State, Integer>();
+        final var pending = new ArrayDeque<State>();
+        stateIds.put(start, 0);
+        states.add(start);
+        pending.add(start);
+
+        while (!pending.isEmpty()) {
+            final var state = pending.poll();
+            final var successors = new ArrayList<State>(state.getEmptySymbolTransitions());
+            successors.addAll(state.getSymbolTransitions().values());
+            successors.addAll(state.getSymbolClassTransitions().values());
+            for (var successor : successors) {
+                if (!stateIds.containsKey(successor)) {
+                    stateIds.put(successor, states.size());
+                    states.add(successor);
+                    pending.add(successor);
+                }
+            }
+        }
+
+        final var stateCount = states.size();
+        final var emptyTransitionOffsets = new int[stateCount + 1];
+        final var symbolTransitionOffsets = new int[stateCount + 1];
+        final var classTransitionOffsets = new int[stateCount + 1];
+        for (int i = 0; i < stateCount; i++) {
+            final var state = states.get(i);
+            emptyTransitionOffsets[i + 1] = emptyTransitionOffsets[i] + state.getEmptySymbolTransitions().size();
+            symbolTransitionOffsets[i + 1] = symbolTransitionOffsets[i] + state.getSymbolTransitions().size();
+            classTransitionOffsets[i + 1] = classTransitionOffsets[i] + state.getSymbolClassTransitions().size();
+        }
+
+        final var emptyTransitionTargets = new int[emptyTransitionOffsets[stateCount]];
+        final var symbolTransitionSymbols = new int[symbolTransitionOffsets[stateCount]];
+        final var symbolTransitionTargets = new int[symbolTransitionOffsets[stateCount]];
+        final var classTransitionClasses = new int[classTransitionOffsets[stateCount]];
+        final var classTransitionTargets = new int[classTransitionOffsets[stateCount]];
+        final var classIds = new HashMap<BitSet, Integer>();
+        final var acceptingStates = new long[getStateSetLength(stateCount)];
+        final var acceptingStateTags = new int[stateCount];
+        Arrays.fill(acceptingStateTags, NO_TAG);
+        for (int i = 0; i < stateCount; i++) {
+            final var state = states.get(i);
+            var transition = emptyTransitionOffsets[i];
+            for (var target : state.getEmptySymbolTransitions()) {
+                emptyTransitionTargets[transition++] = stateIds.get(target);
+            }
+            transition = symbolTransitionOffsets[i];
+            for (var entry : state.getSymbolTransitions().entrySet()) {
+                symbolTransitionSymbols[transition] = entry.getKey();
+                symbolTransitionTargets[transition++] = stateIds.get(entry.getValue());
+            }
+            transition = classTransitionOffsets[i];
+            for (var entry : state.getSymbolClassTransitions().entrySet()) {
+                classTransitionClasses[transition] = classIds.computeIfAbsent(entry.getKey(), c -> classIds.size());
+                classTransitionTargets[transition++] = stateIds.get(entry.getValue());
+            }
+            if (state.isFinal()) {
+                acceptingStates[i >>> 6] |= 1L << i;
+                acceptingStateTags[i] = 0;
+            }
+        }
+
+        final var symbolClasses = new long[classIds.size()][];
+        classIds.forEach((symbols, id) -> symbolClasses[id] = symbols.toLongArray());
+
+        return new NFAProgram(alphabet, 0, emptyTransitionOffsets, emptyTransitionTargets, symbolTransitionOffsets,
+                symbolTransitionSymbols, symbolTransitionTargets, classTransitionOffsets, classTransitionClasses,
+                classTransitionTargets, symbolClasses, acceptingStates, acceptingStateTags, metrics);
+    }
+
+    /**
+     * Combine automata into one reaching an accepting state if any of them does.
+     *
+     * Accepting states of the result are tagged with the index of the automaton they come from.
+     *
+     * @param programs compiled automata sharing the same alphabet.
+     * @return an instance of NFAProgram
+     */
+    static NFAProgram union(List<NFAProgram> programs) {
+        if (programs.isEmpty()) {
+            throw new IllegalArgumentException("At least one automaton is required");
+        }
+        final var alphabet = programs.get(0).alphabet;
+        var stateCount = 1;
+        var emptyTransitionCount = programs.size();
+        var symbolTransitionCount = 0;
+        var classTransitionCount = 0;
+        var classCount = 0;
+        for (var program : programs) {
+            if (program.alphabet != alphabet) {
+                throw new IllegalArgumentException("Automata must share the same alphabet");
+            }
+            stateCount += program.getStateCount();
+            emptyTransitionCount += program.emptyTransitionTargets.length;
+            symbolTransitionCount += program.symbolTransitionSymbols.length;
+            classTransitionCount += program.classTransitionTargets.length;
+            classCount += program.symbolClasses.length;
+        }
+
+        final var emptyTransitionOffsets = new int[stateCount + 1];
+        final var emptyTransitionTargets = new int[emptyTransitionCount];
+        final var symbolTransitionOffsets = new int[stateCount + 1];
+        final var symbolTransitionSymbols = new int[symbolTransitionCount];
+        final var symbolTransitionTargets = new int[symbolTransitionCount];
+        final var classTransitionOffsets = new int[stateCount + 1];
+        final var classTransitionClasses = new int[classTransitionCount];
+        final var classTransitionTargets = new int[classTransitionCount];
+        final var symbolClasses = new long[classCount][];
+        final var acceptingStates = new long[getStateSetLength(stateCount)];
+        final var acceptingStateTags = new int[stateCount];
+        Arrays.fill(acceptingStateTags, NO_TAG);
+
+        var stateOffset = 1;
+        var emptyTransitionOffset = programs.size();
+        var symbolTransitionOffset = 0;
+        var classTransitionOffset = 0;
+        var classOffset = 0;
+        emptyTransitionOffsets[1] = programs.size();
+        for (int tag = 0; tag < programs.size(); tag++) {
+            final var program = programs.get(tag);
+            emptyTransitionTargets[tag] = stateOffset + program.startState;
+            for (int state = 0; state < program.getStateCount(); state++) {
+                final var combinedState = stateOffset + state;
+                emptyTransitionOffsets[combinedState + 1] = emptyTransitionOffset
+                        + program.emptyTransitionOffsets[state + 1];
+                symbolTransitionOffsets[combinedState + 1] = symbolTransitionOffset
+                        + program.symbolTransitionOffsets[state + 1];
+                classTransitionOffsets[combinedState + 1] = classTransitionOffset
+                        + program.classTransitionOffsets[state + 1];
+                if (program.isAccepting(state)) {
+                    acceptingStates[combinedState >>> 6] |= 1L << combinedState;
+                    acceptingStateTags[combinedState] = tag;
+                }
+            }
+            for (int t = 0; t < program.emptyTransitionTargets.length; t++) {
+                emptyTransitionTargets[emptyTransitionOffset + t] = stateOffset + program.emptyTransitionTargets[t];
+            }
+            for (int t = 0; t < program.symbolTransitionSymbols.length; t++) {
+                symbolTransitionSymbols[symbolTransitionOffset + t] = program.symbolTransitionSymbols[t];
+                symbolTransitionTargets[symbolTransitionOffset + t] = stateOffset + program.symbolTransitionTargets[t];
+            }
+            for (int t = 0; t < program.classTransitionTargets.length; t++) {
+                classTransitionClasses[classTransitionOffset + t] = classOffset + program.classTransitionClasses[t];
+                classTransitionTargets[classTransitionOffset + t] = stateOffset + program.classTransitionTargets[t];
+            }
+            System.arraycopy(program.symbolClasses, 0, symbolClasses, classOffset, program.symbolClasses.length);
+            stateOffset += program.getStateCount();
+            emptyTransitionOffset += program.emptyTransitionTargets.length;
+            symbolTransitionOffset += program.symbolTransitionSymbols.length;
+            classTransitionOffset += program.classTransitionTargets.length;
+            classOffset += program.symbolClasses.length;
+        }
+
+        return new NFAProgram(alphabet, 0, emptyTransitionOffsets, emptyTransitionTargets, symbolTransitionOffsets,
+                symbolTransitionSymbols, symbolTransitionTargets, classTransitionOffsets, classTransitionClasses,
+                classTransitionTargets, symbolClasses, acceptingStates, acceptingStateTags, MatchMetrics.newInstance());
+    }
+
+    /**
+     * Get an automaton accepting reversed sequences of symbols accepted by this one.
+     *
+     * Each transition is reversed. A new start state has empty symbol transitions to all accepting states
+     * and the start state has an empty symbol transition to a new accepting state. The result is built
+     * on first use and cached.
+     *
+     * @return an instance of NFAProgram
+     */
+    public NFAProgram reverse() {
+        var result = reversed;
+        if (result == null) {
+            result = buildReverse();
+            reversed = result;
+        }
+        return result;
+    }
+
+    private NFAProgram buildReverse() {
+        final var stateCount = getStateCount();
+        final var newStart = stateCount;
+        final var newAcceptingState = stateCount + 1;
+        final var emptyTransitionCounts = new int[stateCount + 2];
+        final var symbolTransitionCounts = new int[stateCount + 2];
+        final var classTransitionCounts = new int[stateCount + 2];
+        for (int state = 0; state < stateCount; state++) {
+            for (int t = emptyTransitionOffsets[state]; t < emptyTransitionOffsets[state + 1]; t++) {
+                emptyTransitionCounts[emptyTransitionTargets[t]]++;
+            }
+            for (int t = symbolTransitionOffsets[state]; t < symbolTransitionOffsets[state + 1]; t++) {
+                symbolTransitionCounts[symbolTransitionTargets[t]]++;
+            }
+            for (int t = classTransitionOffsets[state]; t < classTransitionOffsets[state + 1]; t++) {
+                classTransitionCounts[classTransitionTargets[t]]++;
+            }
+            if (isAccepting(state)) {
+                emptyTransitionCounts[newStart]++;
+            }
+        }
+        emptyTransitionCounts[startState]++;
+
+        final var emptyOffsets = toOffsets(emptyTransitionCounts);
+        final var symbolOffsets = toOffsets(symbolTransitionCounts);
+        final var classOffsets = toOffsets(classTransitionCounts);
+        final var emptyTargets = new int[emptyOffsets[stateCount + 2]];
+        final var symbols = new int[symbolOffsets[stateCount + 2]];
+        final var symbolTargets = new int[symbols.length];
+        final var classes = new int[classOffsets[stateCount + 2]];
+        final var classTargets = new int[classes.length];
+        final var emptyNext = Arrays.copyOf(emptyOffsets, stateCount + 2);
+        final var symbolNext = Arrays.copyOf(symbolOffsets, stateCount + 2);
+        final var classNext = Arrays.copyOf(classOffsets, stateCount + 2);
+        for (int state = 0; state < stateCount; state++) {
+            for (int t = emptyTransitionOffsets[state]; t < emptyTransitionOffsets[state + 1]; t++) {
+                emptyTargets[emptyNext[emptyTransitionTargets[t]]++] = state;
+            }
+            for (int t = symbolTransitionOffsets[state]; t < symbolTransitionOffsets[state + 1]; t++) {
+                final var transition = symbolNext[symbolTransitionTargets[t]]++;
+                symbols[transition] = symbolTransitionSymbols[t];
+                symbolTargets[transition] = state;
+            }
+            for (int t = classTransitionOffsets[state]; t < classTransitionOffsets[state + 1]; t++) {
+                final var transition = classNext[classTransitionTargets[t]]++;
+                classes[transition] = classTransitionClasses[t];
+                classTargets[transition] = state;
+            }
+            if (isAccepting(state)) {
+                emptyTargets[emptyNext[newStart]++] = state;
+            }
+        }
+        emptyTargets[emptyNext[startState]++] = newAcceptingState;
+
+        final var reversedAcceptingStates = new long[getStateSetLength(stateCount + 2)];
+        reversedAcceptingStates[newAcceptingState >>> 6] |= 1L << newAcceptingState;
+        final var reversedTags = new int[stateCount + 2];
+        Arrays.fill(reversedTags, NO_TAG);
+        reversedTags[newAcceptingState] = 0;
+
+        return new NFAProgram(alphabet, newStart, emptyOffsets, emptyTargets, symbolOffsets, symbols, symbolTargets,
+                classOffsets, classes, classTargets, symbolClasses, reversedAcceptingStates, reversedTags, metrics);
+    }
+
+    private static int[] toOffsets(int[] counts) {
+        final var offsets = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+
+    private static int getStateSetLength(int stateCount) {
+        return (stateCount + 63) >>> 6;
+    }
+
+    /**
+     * Assign columns to symbols so that symbols share a column if and only if they are consumed by the same
+     * transitions.
+     *
+     * Each label of a transition, a single symbol or a class, splits the columns of the symbols it contains
+     * from the columns of the symbols it does not contain.
+     *
+     * @param transitionSymbols symbols of single-symbol transitions.
+     * @param symbolClasses classes of symbols of class transitions.
+     * @return an array mapping symbol identifiers to columns, with NO_COLUMN for symbols not consumed
+     * by any transition.
+     */
+    private static int[] partitionSymbols(int[] transitionSymbols, long[][] symbolClasses) {
+        var symbolCount = 0;
+        for (var symbol : transitionSymbols) {
+            symbolCount = Math.max(symbolCount, symbol + 1);
+        }
+        for (var symbolClass : symbolClasses) {
+            symbolCount = Math.max(symbolCount, BitSet.valueOf(symbolClass).length());
+        }
+
+        final var columns = new int[symbolCount];
+        Arrays.fill(columns, NO_COLUMN);
+        var nextColumn = 0;
+        for (var symbol : transitionSymbols) {
+            columns[symbol] = nextColumn++;
+        }
+        final var splitColumns = new HashMap<Integer, Integer>();
+        for (var symbolClass : symbolClasses) {
+            splitColumns.clear();
+            for (int word = 0; word < symbolClass.length; word++) {
+                var bits = symbolClass[word];
+                while (bits != 0) {
+                    final var symbol = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    final var column = splitColumns.get(columns[symbol]);
+                    if (column == null) {
+                        splitColumns.put(columns[symbol], nextColumn);
+                        columns[symbol] = nextColumn++;
+                    } else {
+                        columns[symbol] = column;
+                    }
+                }
+            }
+        }
+
+        final var denseColumns = new HashMap<Integer, Integer>();
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            if (columns[symbol] != NO_COLUMN) {
+                columns[symbol] = denseColumns.computeIfAbsent(columns[symbol], c -> denseColumns.size());
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(List<String> symbols) {
+        final var encoded = alphabet.encode(symbols);
+        return isMatch(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Check if the automaton reaches an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return true if an accepting state has been reached.
+     */
+    public boolean isMatch(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        return newMatcher().matches(symbols, from, to);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * The symbols are consumed in a single pass, remembering the last position at which an accepting state
+     * has been reached, so the time needed is linear in the length of the range.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingPrefix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+        final var end = getMatchingPrefixEnd(symbols, from, to);
+        return end == NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, end);
+    }
+
+    /**
+     * Get the longest subsequence of given range of symbols ending at its end such as the automaton reaches
+     * an accepting state after consuming the subsequence.
+     *
+     * The symbols are consumed backwards, starting from the end of the range, by the reversed automaton,
+     * so the range does not need to be copied or reversed.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the span of the matching subsequence.
+     */
+    public MatchSpan getMatchingSuffix(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        if (from == to) {
+            throw new IllegalArgumentException("A sequence of symbols cannot be empty");
+        }
+        final var start = reverse().newMatcher().getMatchingSuffixStart(symbols, from, to);
+        return start == NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(start, to);
+    }
+
+    /**
+     * Get the end of the longest subsequence of given range of symbols starting at its beginning
+     * such as the automaton reaches an accepting state after consuming the subsequence.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return the index following the last symbol of the matching subsequence or NO_MATCH.
+     */
+    int getMatchingPrefixEnd(int[] symbols, int from, int to) {
+        return newMatcher().getMatchingPrefixEnd(symbols, from, to);
+    }
+
+    /**
+     * Find all non-overlapping leftmost-longest matches within given range of symbols.
+     *
+     * The range is searched from left to right. At each step, the match starting at the lowest index is chosen,
+     * and the longest one if there are more matches starting there. The next search starts at the end of the match,
+     * or after the following symbol if the match is empty. The positions matches can start at are found
+     * in a single backward pass of the reversed automaton, rather than by matching a prefix at each position,
+     * and the end of each match is found without consuming any symbol following it, so the time needed
+     * is linear in the length of the range.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return a list of spans of the matches, in order of their positions.
+     */
+    public List<MatchSpan> findAll(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var finder = newSpanFinder();
+        finder.reset(symbols, from, to);
+        final var spans = new ArrayList<MatchSpan>();
+        var position = from;
+        while (position <= to) {
+            final var start = finder.find(position);
+            if (start == NO_MATCH) {
+                break;
+            }
+            final var end = finder.getEnd();
+            spans.add(MatchSpan.of(start, end));
+            position = end > start ? end : end + 1;
+        }
+        return spans;
+    }
+
+    /**
+     * Replace all non-overlapping leftmost-longest matches within given range of symbols, as found by findAll.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @param replacement an array of symbol identifiers replacing each match.
+     * @return the symbols of the range with the matches replaced.
+     */
+    public int[] replaceAll(int[] symbols, int from, int to, int[] replacement) {
+        final var spans = findAll(symbols, from, to);
+        var length = to - from;
+        for (var span : spans) {
+            length += replacement.length - span.getLength();
+        }
+
+        final var result = new int[length];
+        var position = from;
+        var resultPosition = 0;
+        for (var span : spans) {
+            final var unmatched = span.getStart() - position;
+            System.arraycopy(symbols, position, result, resultPosition, unmatched);
+            resultPosition += unmatched;
+            System.arraycopy(replacement, 0, result, resultPosition, replacement.length);
+            resultPosition += replacement.length;
+            position = span.getEnd();
+        }
+        System.arraycopy(symbols, position, result, resultPosition, to - position);
+        return result;
+    }
+
+    /**
+     * Create a search for leftmost-longest matches anywhere in a sequence of symbols.
+     *
+     * @return a new finder.
+     */
+    SpanFinder newSpanFinder() {
+        return new SpanFinder(this);
+    }
+
+    /**
+     * Create a matching session consuming symbols one at a time.
+     *
+     * @return a new matcher in the start state of the automaton.
+     */
+    public Matcher newMatcher() {
+        return new Matcher(this);
+    }
+
+    /**
+     * Compute the set of states reached from given states by consuming given symbol.
+     *
+     * @param currentStates the current set of states.
+     * @param symbol an identifier of a symbol to consume.
+     * @param nextStates the set to store the result in. Its previous content is discarded.
+     * @param stack an array used as a work stack, of length equal to the number of states.
+     * @return true if the resulting set is not empty.
+     */
+    boolean step(long[] currentStates, int symbol, long[] nextStates, int[] stack) {
+        Arrays.fill(nextStates, 0L);
+        var live = false;
+        for (int word = 0; word < currentStates.length; word++) {
+            var bits = currentStates[word];
+            while (bits != 0) {
+                final var state = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int t = symbolTransitionOffsets[state]; t < symbolTransitionOffsets[state + 1]; t++) {
+                    if (symbolTransitionSymbols[t] == symbol) {
+                        addClosure(symbolTransitionTargets[t], nextStates, stack);
+                        live = true;
+                    }
+                }
+                for (int t = classTransitionOffsets[state]; t < classTransitionOffsets[state + 1]; t++) {
+                    if (containsSymbol(symbolClasses[classTransitionClasses[t]], symbol)) {
+                        addClosure(classTransitionTargets[t], nextStates, stack);
+                        live = true;
+                    }
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Add the states reached from given state by consuming given symbol to a set of states
+     * and append the added states to a list.
+     *
+     * @param state the current state.
+     * @param symbol an identifier of a symbol to consume.
+     * @param nextStates the set of states to add to.
+     * @param added the list of states added to the set, of length equal to the number of states.
+     * @param size the number of states in the list.
+     * @return the number of states in the list after appending the added states.
+     */
+    int step(int state, int symbol, long[] nextStates, int[] added, int size) {
+        for (int t = symbolTransitionOffsets[state]; t < symbolTransitionOffsets[state + 1]; t++) {
+            if (symbolTransitionSymbols[t] == symbol) {
+                size = addClosure(symbolTransitionTargets[t], nextStates, added, size);
+            }
+        }
+        for (int t = classTransitionOffsets[state]; t < classTransitionOffsets[state + 1]; t++) {
+            if (containsSymbol(symbolClasses[classTransitionClasses[t]], symbol)) {
+                size = addClosure(classTransitionTargets[t], nextStates, added, size);
+            }
+        }
+        return size;
+    }
+
+    private static boolean containsSymbol(long[] symbolClass, int symbol) {
+        return symbol >= 0 && (symbol >>> 6) < symbolClass.length && (symbolClass[symbol >>> 6] & (1L << symbol)) != 0;
+    }
+
+    /**
+     * Add given state and all states reachable from it by empty symbol transitions to a set of states.
+     *
+     * @param state a state to add.
+     * @param states the set of states.
+     * @param stack an array used as a work stack, of length equal to the number of states.
+     */
+    void addClosure(int state, long[] states, int[] stack) {
+        if ((states[state >>> 6] & (1L << state)) != 0) {
+            return;
+        }
+        states[state >>> 6] |= 1L << state;
+        var expansions = 0;
+        var size = 0;
+        stack[size++] = state;
+        while (size > 0) {
+            final var current = stack[--size];
+            for (int t = emptyTransitionOffsets[current]; t < emptyTransitionOffsets[current + 1]; t++) {
+                final var target = emptyTransitionTargets[t];
+                if ((states[target >>> 6] & (1L << target)) == 0) {
+                    states[target >>> 6] |= 1L << target;
+                    stack[size++] = target;
+                    expansions++;
+                }
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            metrics.recordClosureExpansions(expansions);
+        }
+    }
+
+    /**
+     * Add given state and all states reachable from it by empty symbol transitions to a set of states
+     * and append the added states to a list. The list is also the work queue of the search.
+     *
+     * @param state a state to add.
+     * @param states the set of states.
+     * @param added the list of states added to the set, of length equal to the number of states.
+     * @param size the number of states in the list.
+     * @return the number of states in the list after appending the added states.
+     */
+    int addClosure(int state, long[] states, int[] added, int size) {
+        if ((states[state >>> 6] & (1L << state)) != 0) {
+            return size;
+        }
+        states[state >>> 6] |= 1L << state;
+        final var first = size;
+        added[size++] = state;
+        for (int i = first; i < size; i++) {
+            final var current = added[i];
+            for (int t = emptyTransitionOffsets[current]; t < emptyTransitionOffsets[current + 1]; t++) {
+                final var target = emptyTransitionTargets[t];
+                if ((states[target >>> 6] & (1L << target)) == 0) {
+                    states[target >>> 6] |= 1L << target;
+                    added[size++] = target;
+                }
+            }
+        }
+        if (MatchMetrics.ENABLED) {
+            metrics.recordClosureExpansions(size - first - 1);
+        }
+        return size;
+    }
+
+    /**
+     * Check if a set of states contains an accepting state.
+     *
+     * @param states the set of states.
+     * @return true if at least one of the states is accepting.
+     */
+    boolean containsAcceptingState(long[] states) {
+        for (int word = 0; word < states.length; word++) {
+            if ((states[word] & acceptingStates[word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collect tags of accepting states contained in a set of states.
+     *
+     * @param states the set of states.
+     * @param tags the set to add the tags to.
+     */
+    void collectAcceptingTags(long[] states, BitSet tags) {
+        for (int word = 0; word < states.length; word++) {
+            var bits = states[word] & acceptingStates[word];
+            while (bits != 0) {
+                tags.set(acceptingStateTags[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Count states in a set of states.
+     *
+     * @param states the set of states.
+     * @return the number of states.
+     */
+    static int countStates(long[] states) {
+        var count = 0;
+        for (var word : states) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Create an empty set of states of the automaton.
+     *
+     * @return a bitset with a bit for each state.
+     */
+    long[] newStateSet() {
+        return new long[acceptingStates.length];
+    }
+
+    boolean isAccepting(int state) {
+        return (acceptingStates[state >>> 6] & (1L << state)) != 0;
+    }
+
+    int getStartState() {
+        return startState;
+    }
+
+    /**
+     * Get the column of a symbol.
+     *
+     * @param symbol an identifier of a symbol.
+     * @return the column of the symbol, or NO_COLUMN if no transition consumes it.
+     */
+    int getSymbolColumn(int symbol) {
+        return symbol >= 0 && symbol < symbolColumns.length ? symbolColumns[symbol] : NO_COLUMN;
+    }
+
+    /**
+     * Get an array mapping symbol identifiers to columns. The array is shared and must not be modified.
+     *
+     * @return the array, with NO_COLUMN for symbols no transition consumes.
+     */
+    int[] getSymbolColumns() {
+        return symbolColumns;
+    }
+
+    /**
+     * Get a symbol representing a column: consuming it has the same effect as consuming any other symbol
+     * of the column.
+     *
+     * @param column a column.
+     * @return an identifier of a symbol.
+     */
+    int getColumnSymbol(int column) {
+        return columnSymbols[column];
+    }
+
+    int getColumnCount() {
+        return columnSymbols.length;
+    }
+
+    /**
+     * Get the alphabet used to encode symbols consumed by the automaton.
+     *
+     * @return the alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Get counters of the work done while matching with the automaton. They are updated only if instrumentation
+     * is enabled.
+     *
+     * @return the counters.
+     */
+    public MatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the number of states of the automaton.
+     *
+     * @return the number of states.
+     */
+    public int getStateCount() {
+        return symbolTransitionOffsets.length - 1;
+    }
+}
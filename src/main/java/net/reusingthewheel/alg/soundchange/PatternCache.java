@@ -0,0 +1,85 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache of compiled patterns, keyed by pattern text.
+ *
+ * When the cache is full, the least recently used pattern is evicted. Compiled patterns are immutable, so one
+ * instance is shared by all rules using the same pattern. If the parser builds automata with a sharing NFAFactory,
+ * patterns that differ in text, but not in structure, share a compiled automaton as well.
+ * Instances are safe for use by multiple threads.
+ */
+public final class PatternCache {
+    private final PatternParser parser;
+    private final Map<String, NFAProgram> compiledPatterns;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Create a cache.
+     *
+     * @param parser a parser used to parse patterns missing from the cache.
+     * @param maxSize the maximum number of cached patterns.
+     */
+    public PatternCache(PatternParser parser, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size must be at least 1, got " + maxSize);
+        }
+        this.parser = parser;
+        this.compiledPatterns = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NFAProgram> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the compiled form of a pattern, parsing and compiling it if it is not cached.
+     *
+     * @param pattern a pattern.
+     * @return the compiled automaton.
+     * @throws IllegalArgumentException if the pattern is not valid.
+     */
+    public NFAProgram compile(String pattern) {
+        synchronized (compiledPatterns) {
+            final var cached = compiledPatterns.get(pattern);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+        }
+
+        final var compiled = parser.parse(pattern).toProgram();
+        synchronized (compiledPatterns) {
+            missCount++;
+            final var existing = compiledPatterns.putIfAbsent(pattern, compiled);
+            return existing == null ? compiled : existing;
+        }
+    }
+
+    public PatternParser getParser() {
+        return parser;
+    }
+
+    public int size() {
+        synchronized (compiledPatterns) {
+            return compiledPatterns.size();
+        }
+    }
+
+    public long getHitCount() {
+        synchronized (compiledPatterns) {
+            return hitCount;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (compiledPatterns) {
+            return missCount;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+
+/**
+ * A parser of a compact textual syntax of sound change environments, producing automata built with NFA factory
+ * methods.
+ *
+ * The syntax consists of:
+ * <ul>
+ *     <li>symbols - single characters, or multi-character phonemes from the inventory given to the parser,
+ *     recognized by the longest match,</li>
+ *     <li>{@code #} - the word boundary,</li>
+ *     <li>{@code [ ]} - a class of symbols, matching any one of the symbols listed between the brackets,</li>
+ *     <li>{@code \} - an escape making the following character a symbol,</li>
+ *     <li>{@code ( )} - grouping,</li>
+ *     <li>{@code |} - alternation, with empty alternatives allowed,</li>
+ *     <li>{@code *}, {@code +}, {@code ?} - zero or more, one or more, zero or one repetitions.</li>
+ * </ul>
+ * Whitespace is ignored. Automata are built by an NFAFactory, so a parser given a sharing factory returns
+ * the same automaton for structurally equal patterns and subpatterns. Instances are immutable.
+ */
+public final class PatternParser {
+    private static final String OPERATORS = "()|*+?";
+    private static final char CLASS_START = '[';
+    private static final char CLASS_END = ']';
+
+    private final List<String> phonemes;
+    private final NFAFactory factory;
+
+    /**
+     * Create a parser recognizing only single-character symbols.
+     */
+    public PatternParser() {
+        this(Set.of());
+    }
+
+    /**
+     * Create a parser recognizing given multi-character phonemes as single symbols.
+     *
+     * @param phonemes multi-character phonemes.
+     */
+    public PatternParser(Set<String> phonemes) {
+        this(phonemes, NFAFactory.withoutSharing());
+    }
+
+    /**
+     * Create a parser recognizing given multi-character phonemes as single symbols and building automata
+     * with given factory.
+     *
+     * @param phonemes multi-character phonemes.
+     * @param factory a factory building automata of parsed patterns.
+     */
+    public PatternParser(Set<String> phonemes, NFAFactory factory) {
+        this.factory = factory;
+        final var sorted = new ArrayList<>(phonemes);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        this.phonemes = List.copyOf(sorted);
+    }
+
+    /**
+     * Parse a pattern.
+     *
+     * @param pattern a pattern.
+     * @return an instance of NFA matching the same symbol sequences as the pattern.
+     * @throws IllegalArgumentException if the pattern is not valid.
+     */
+    public NFA parse(String pattern) {
+        final var parse = new Parse(pattern, tokenize(pattern), factory);
+        final var automaton = parse.parseAlternation();
+        if (parse.hasNext()) {
+            throw parse.error("Unexpected '" + parse.peek().text + "'");
+        }
+        return automaton;
+    }
+
+    /**
+     * Split a word into symbols, recognizing phonemes of this parser.
+     *
+     * @param word a word.
+     * @return a list of symbols.
+     */
+    public List<String> splitSymbols(String word) {
+        final var symbols = new ArrayList<String>();
+        var position = 0;
+        while (position < word.length()) {
+            final var symbol = matchSymbol(word, position);
+            symbols.add(symbol);
+            position += symbol.length();
+        }
+        return symbols;
+    }
+
+    private String matchSymbol(String text, int position) {
+        for (var phoneme : phonemes) {
+            if (text.startsWith(phoneme, position)) {
+                return phoneme;
+            }
+        }
+        return text.substring(position, text.offsetByCodePoints(position, 1));
+    }
+
+    private List<Token> tokenize(String pattern) {
+        final var tokens = new ArrayList<Token>();
+        var position = 0;
+        while (position < pattern.length()) {
+            final var c = pattern.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (OPERATORS.indexOf(c) >= 0) {
+                tokens.add(new Token(String.valueOf(c), false, position));
+                position++;
+            } else if (c == CLASS_START) {
+                final var symbolClass = new LinkedHashSet<String>();
+                final var start = position++;
+                while (position < pattern.length() && pattern.charAt(position) != CLASS_END) {
+                    if (Character.isWhitespace(pattern.charAt(position))) {
+                        position++;
+                    } else {
+                        final var symbol = readSymbol(pattern, position);
+                        symbolClass.add(symbol);
+                        position += symbol.length() + (pattern.charAt(position) == '\\' ? 1 : 0);
+                    }
+                }
+                if (position == pattern.length()) {
+                    throw new IllegalArgumentException("Unclosed class at position " + start + " in: " + pattern);
+                }
+                tokens.add(new Token(pattern.substring(start, ++position), symbolClass, start));
+            } else {
+                final var symbol = readSymbol(pattern, position);
+                tokens.add(new Token(symbol, true, position));
+                position += symbol.length() + (c == '\\' ? 1 : 0);
+            }
+        }
+        return tokens;
+    }
+
+    private String readSymbol(String pattern, int position) {
+        if (pattern.charAt(position) != '\\') {
+            return matchSymbol(pattern, position);
+        }
+        if (position + 1 == pattern.length()) {
+            throw new IllegalArgumentException("Dangling escape at position " + position + " in: " + pattern);
+        }
+        return pattern.substring(position + 1, pattern.offsetByCodePoints(position + 1, 1));
+    }
+
+    private static final class Token {
+        private final String text;
+        private final boolean symbol;
+        private final Set<String> symbolClass;
+        private final int position;
+
+        private Token(String text, boolean symbol, int position) {
+            this.text = text;
+            this.symbol = symbol;
+            this.symbolClass = null;
+            this.position = position;
+        }
+
+        private Token(String text, Set<String> symbolClass, int position) {
+            this.text = text;
+            this.symbol = true;
+            this.symbolClass = symbolClass;
+            this.position = position;
+        }
+
+        private boolean isOperator(String operator) {
+            return !symbol && text.equals(operator);
+        }
+    }
+
+    private static final class Parse {
+        private final String pattern;
+        private final List<Token> tokens;
+        private final NFAFactory factory;
+        private int next;
+
+        private Parse(String pattern, List<Token> tokens, NFAFactory factory) {
+            this.pattern = pattern;
+            this.tokens = tokens;
+            this.factory = factory;
+        }
+
+        private boolean hasNext() {
+            return next < tokens.size();
+        }
+
+        private Token peek() {
+            return tokens.get(next);
+        }
+
+        private IllegalArgumentException error(String message) {
+            final var position = hasNext() ? peek().position : pattern.length();
+            return new IllegalArgumentException(message + " at position " + position + " in: " + pattern);
+        }
+
+        private NFA parseAlternation() {
+            final var alternatives = new ArrayList<NFA>();
+            alternatives.add(parseConcatenation());
+            while (hasNext() && peek().isOperator("|")) {
+                next++;
+                alternatives.add(parseConcatenation());
+            }
+
+            // a single union copies each alternative once, unlike nested unions of two operands
+            return alternatives.size() == 1 ? alternatives.get(0) : factory.newUnionNFA(alternatives);
+        }
+
+        private NFA parseConcatenation() {
+            final var repetitions = new ArrayList<NFA>();
+            while (hasNext() && (peek().symbol || peek().isOperator("("))) {
+                repetitions.add(parseRepetition());
+            }
+            if (repetitions.isEmpty()) {
+                return factory.newEmptySymbolNFA();
+            }
+
+            // concatenation copies its first operand, so joining from the right copies each element once
+            var automaton = repetitions.get(repetitions.size() - 1);
+            for (int i = repetitions.size() - 2; i >= 0; i--) {
+                automaton = factory.newConcatenateNFA(repetitions.get(i), automaton);
+            }
+            return automaton;
+        }
+
+        private NFA parseRepetition() {
+            var automaton = parseAtom();
+            while (hasNext()) {
+                if (peek().isOperator("*")) {
+                    automaton = factory.newKleeneClosureNFA(automaton);
+                } else if (peek().isOperator("+")) {
+                    automaton = factory.newOneOrMoreNFA(automaton);
+                } else if (peek().isOperator("?")) {
+                    automaton = factory.newZeroOrOneNFA(automaton);
+                } else {
+                    break;
+                }
+                next++;
+            }
+            return automaton;
+        }
+
+        private NFA parseAtom() {
+            final var token = tokens.get(next++);
+            if (token.symbolClass != null) {
+                return factory.newSymbolClassNFA(token.symbolClass);
+            }
+            if (token.symbol) {
+                return factory.newSymbolNFA(token.text);
+            }
+
+            final var automaton = parseAlternation();
+            if (!hasNext() || !peek().isOperator(")")) {
+                throw error("Expected ')'");
+            }
+            next++;
+            return automaton;
+        }
+    }
+}
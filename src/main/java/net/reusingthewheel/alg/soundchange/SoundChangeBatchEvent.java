@@ -0,0 +1,30 @@
+package net.reusingthewheel.alg.soundchange;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event emitted for each batch of words processed by SoundChangeEngine.
+ *
+ * When no recording is running, creating and committing the event costs next to nothing.
+ */
+@Name("net.reusingthewheel.alg.soundchange.SoundChangeBatch")
+@Label("Sound Change Batch")
+@Category({"Language Generator", "Sound Change"})
+@Description("Application of sound change rules to a lexicon")
+final class SoundChangeBatchEvent extends Event {
+    @Label("Rule Count")
+    int ruleCount;
+
+    @Label("Word Count")
+    int wordCount;
+
+    @Label("Execution Mode")
+    String executionMode;
+
+    @Label("Words per Second")
+    double wordsPerSecond;
+}
@@ -0,0 +1,38 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.List;
+
+/**
+ * The result of applying sound change rules to a lexicon.
+ */
+public final class SoundChangeBatchResult {
+    private final List<List<String>> words;
+    private final long elapsedNanos;
+
+    SoundChangeBatchResult(List<List<String>> words, long elapsedNanos) {
+        this.words = words;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the changed words, in the order of the words of the lexicon.
+     *
+     * @return a list of words.
+     */
+    public List<List<String>> getWords() {
+        return words;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the throughput of the batch.
+     *
+     * @return the number of words processed per second.
+     */
+    public double getWordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : words.size() * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,279 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An engine applying an ordered list of sound change rules to words.
+ *
+ * Each rule is applied to the result of the previous one. A rule replaces non-overlapping leftmost-longest matches
+ * of its target, found without scanning the word again for each starting position of a match. Environments
+ * are checked against the word as it was before the rule was applied.
+ *
+ * Words are independent of each other, so whole lexicons can be processed in parallel. Every thread uses its own
+ * matchers, and the compiled rules are immutable, so the engine can be shared by any number of threads.
+ *
+ * An engine can be given a MatchCache, shared by all of its threads. Contexts of rules too large to be determinized
+ * are then checked through the cache, since simulating their NFA costs more than a lookup, and the rest of a word
+ * around a target tends to repeat across a lexicon. Deterministic contexts and targets never use the cache.
+ */
+public final class SoundChangeEngine {
+    /**
+     * The way words of a lexicon are distributed among threads.
+     */
+    public enum ExecutionMode {
+        /**
+         * Process words one by one in the calling thread.
+         */
+        SEQUENTIAL,
+        /**
+         * Process words using all available processors.
+         */
+        PARALLEL
+    }
+
+    private final Alphabet alphabet;
+    private final List<SoundChangeRule> rules;
+    private final int wordBoundary;
+    private final ThreadLocal<RuleMatchers[]> matchers;
+    private final MatchCache cache;
+    private final CompiledAutomaton[] cachedLeftContexts;
+    private final CompiledAutomaton[] cachedRightContexts;
+
+    /**
+     * Create an engine applying given rules.
+     *
+     * @param rules a list of rules, in order of application.
+     */
+    public SoundChangeEngine(List<SoundChangeRule> rules) {
+        this(rules, null);
+    }
+
+    /**
+     * Create an engine applying given rules and checking their non-deterministic contexts through a cache.
+     *
+     * @param rules a list of rules, in order of application.
+     * @param cache a cache of match results, or null to match all contexts directly.
+     */
+    public SoundChangeEngine(List<SoundChangeRule> rules, MatchCache cache) {
+        this.alphabet = Alphabet.getDefault();
+        this.rules = List.copyOf(rules);
+        this.wordBoundary = alphabet.intern(SoundChangeRule.WORD_BOUNDARY);
+        this.matchers = ThreadLocal.withInitial(() -> this.rules.stream()
+                .map(RuleMatchers::new)
+                .toArray(RuleMatchers[]::new)
+        );
+        this.cache = cache;
+        this.cachedLeftContexts = new CompiledAutomaton[this.rules.size()];
+        this.cachedRightContexts = new CompiledAutomaton[this.rules.size()];
+        if (cache != null) {
+            // the cache compares automata by identity, so rules sharing a context share its compiled form
+            final var compiledContexts = new IdentityHashMap<NFAProgram, CompiledAutomaton>();
+            for (int i = 0; i < this.rules.size(); i++) {
+                cachedLeftContexts[i] = compileForCache(this.rules.get(i).getLeftContext(), compiledContexts);
+                cachedRightContexts[i] = compileForCache(this.rules.get(i).getRightContext(), compiledContexts);
+            }
+        }
+    }
+
+    private static CompiledAutomaton compileForCache(NFAProgram context,
+                                                     Map<NFAProgram, CompiledAutomaton> compiledContexts) {
+        if (context == null) {
+            return null;
+        }
+        if (!compiledContexts.containsKey(context)) {
+            // contexts which can be determinized are cheap to match directly, so they are neither minimized
+            // nor cached, and the others are compiled without trying to determinize them again
+            final var deterministic = DFA.fromProgram(context, CompiledAutomaton.DEFAULT_MAX_DFA_STATES) != null;
+            compiledContexts.put(context, deterministic ? null : CompiledAutomaton.of(context, 0));
+        }
+        return compiledContexts.get(context);
+    }
+
+    /**
+     * Apply the rules to a word.
+     *
+     * @param word a list of symbols. Symbols not used by the rules are copied to the result unchanged, without
+     *             being interned, so applying rules to arbitrary words does not grow the alphabet.
+     * @return the changed word.
+     */
+    public List<String> apply(List<String> word) {
+        final var encoded = alphabet.encode(word);
+        final var result = apply(encoded);
+
+        // no transition consumes unknown symbols, so the rules keep all of them, in their original order
+        final var decoded = new ArrayList<String>(result.length);
+        var unknown = 0;
+        for (var symbol : result) {
+            if (symbol == Alphabet.UNKNOWN_SYMBOL) {
+                while (encoded[unknown] != Alphabet.UNKNOWN_SYMBOL) {
+                    unknown++;
+                }
+                decoded.add(word.get(unknown++));
+            } else {
+                decoded.add(alphabet.getSymbol(symbol));
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Apply the rules to a word.
+     *
+     * @param word an array of symbol identifiers from the alphabet of the rules.
+     * @return the changed word.
+     */
+    public int[] apply(int[] word) {
+        final var ruleMatchers = matchers.get();
+        var padded = new int[word.length + 2];
+        padded[0] = wordBoundary;
+        System.arraycopy(word, 0, padded, 1, word.length);
+        padded[padded.length - 1] = wordBoundary;
+
+        for (int i = 0; i < rules.size(); i++) {
+            padded = apply(i, ruleMatchers[i], padded);
+        }
+
+        return Arrays.copyOfRange(padded, 1, padded.length - 1);
+    }
+
+    private int[] apply(int ruleIndex, RuleMatchers ruleMatchers, int[] padded) {
+        final var wordEnd = padded.length - 1;
+        final var replacement = rules.get(ruleIndex).getReplacement();
+        var output = new int[padded.length + replacement.length];
+        output[0] = padded[0];
+        var length = 1;
+
+        var position = 1;
+        ruleMatchers.target.reset(padded, position, wordEnd);
+        while (position <= wordEnd) {
+            final var start = ruleMatchers.target.find(position);
+            if (start == NFAProgram.NO_MATCH) {
+                break;
+            }
+            final var end = ruleMatchers.target.getEnd();
+            output = ensureCapacity(output, length + start - position);
+            System.arraycopy(padded, position, output, length, start - position);
+            length += start - position;
+            position = start;
+            if (isInContext(ruleIndex, ruleMatchers, padded, start, end)) {
+                output = ensureCapacity(output, length + replacement.length);
+                System.arraycopy(replacement, 0, output, length, replacement.length);
+                length += replacement.length;
+                if (end > start) {
+                    position = end;
+                    continue;
+                }
+            }
+            if (position < wordEnd) {
+                output = ensureCapacity(output, length + 1);
+                output[length++] = padded[position];
+            }
+            position++;
+        }
+        if (position < wordEnd) {
+            output = ensureCapacity(output, length + wordEnd - position);
+            System.arraycopy(padded, position, output, length, wordEnd - position);
+            length += wordEnd - position;
+        }
+
+        output = ensureCapacity(output, length + 1);
+        output[length++] = padded[wordEnd];
+        return Arrays.copyOf(output, length);
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
+    }
+
+    private boolean isInContext(int ruleIndex, RuleMatchers ruleMatchers, int[] padded, int start, int end) {
+        final var cachedRightContext = cachedRightContexts[ruleIndex];
+        if (cachedRightContext != null) {
+            if (!cache.getMatchingPrefix(cachedRightContext, padded, end, padded.length).isMatchDetected()) {
+                return false;
+            }
+        } else if (ruleMatchers.rightContext != null
+                && ruleMatchers.rightContext.getMatchingPrefixEnd(padded, end, padded.length) == NFAProgram.NO_MATCH) {
+            return false;
+        }
+
+        final var cachedLeftContext = cachedLeftContexts[ruleIndex];
+        if (cachedLeftContext != null) {
+            return cache.getMatchingSuffix(cachedLeftContext, padded, 0, start).isMatchDetected();
+        }
+        return ruleMatchers.leftContext == null || ruleMatchers.leftContext.hasMatchingSuffix(padded, 0, start);
+    }
+
+    /**
+     * Apply the rules to all words of a lexicon.
+     *
+     * @param lexicon a list of words.
+     * @param mode the way the words are distributed among threads. The result does not depend on it.
+     * @return the changed words, in the order of the words of the lexicon, with the throughput of the batch.
+     */
+    public SoundChangeBatchResult applyAll(List<List<String>> lexicon, ExecutionMode mode) {
+        final var event = new SoundChangeBatchEvent();
+        event.begin();
+        final var startTime = System.nanoTime();
+        final var stream = mode == ExecutionMode.PARALLEL ? lexicon.parallelStream() : lexicon.stream();
+        final var words = stream.map(this::apply).collect(Collectors.toList());
+        final var result = new SoundChangeBatchResult(words, System.nanoTime() - startTime);
+
+        commit(event, lexicon.size(), mode, result.getWordsPerSecond());
+        return result;
+    }
+
+    /**
+     * Apply the rules to a range of words encoded as symbol identifiers.
+     *
+     * @param words an array of words, each an array of symbol identifiers from the alphabet of the rules.
+     * @param from the index of the first word, inclusive.
+     * @param to the index of the last word, exclusive.
+     * @param mode the way the words are distributed among threads. The result does not depend on it.
+     * @return the changed words, in the order of the words of the range.
+     */
+    public int[][] applyAll(int[][] words, int from, int to, ExecutionMode mode) {
+        Objects.checkFromToIndex(from, to, words.length);
+        final var event = new SoundChangeBatchEvent();
+        event.begin();
+        final var startTime = System.nanoTime();
+        final var indexes = IntStream.range(from, to);
+        final var result = (mode == ExecutionMode.PARALLEL ? indexes.parallel() : indexes)
+                .mapToObj(i -> apply(words[i]))
+                .toArray(int[][]::new);
+        final var elapsedNanos = System.nanoTime() - startTime;
+
+        commit(event, result.length, mode, elapsedNanos == 0 ? 0 : result.length * 1e9 / elapsedNanos);
+        return result;
+    }
+
+    private void commit(SoundChangeBatchEvent event, int wordCount, ExecutionMode mode, double wordsPerSecond) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.ruleCount = rules.size();
+            event.wordCount = wordCount;
+            event.executionMode = mode.name();
+            event.wordsPerSecond = wordsPerSecond;
+            event.commit();
+        }
+    }
+
+    private static final class RuleMatchers {
+        private final SpanFinder target;
+        private final Matcher leftContext;
+        private final Matcher rightContext;
+
+        private RuleMatchers(SoundChangeRule rule) {
+            this.target = rule.getTarget().newSpanFinder();
+            // the left context is matched backwards from the target, by the reversed automaton
+            this.leftContext = rule.getLeftContext() == null ? null : rule.getLeftContext().reverse().newMatcher();
+            this.rightContext = rule.getRightContext() == null ? null : rule.getRightContext().newMatcher();
+        }
+    }
+}
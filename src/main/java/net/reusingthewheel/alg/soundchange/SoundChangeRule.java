@@ -0,0 +1,96 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.List;
+
+/**
+ * A sound change rule replacing sequences of symbols matched by a target automaton with a replacement,
+ * in an environment described by automata matching the symbols preceding and following the target.
+ *
+ * The automata are compiled when the rule is created, so the rule is immutable and can be applied
+ * by many threads at once. The environment automata can match the WORD_BOUNDARY symbol surrounding each word.
+ */
+public final class SoundChangeRule {
+    /**
+     * The symbol marking the beginning and the end of a word in rule environments.
+     */
+    public static final String WORD_BOUNDARY = "#";
+
+    private final NFAProgram target;
+    private final int[] replacement;
+    private final NFAProgram leftContext;
+    private final NFAProgram rightContext;
+
+    private SoundChangeRule(NFAProgram target, int[] replacement, NFAProgram leftContext, NFAProgram rightContext) {
+        this.target = target;
+        this.replacement = replacement;
+        this.leftContext = leftContext;
+        this.rightContext = rightContext;
+    }
+
+    /**
+     * Create a rule applied regardless of the environment.
+     *
+     * @param target an automaton matching symbols to replace.
+     * @param replacement symbols replacing the matched ones.
+     * @return an instance of SoundChangeRule
+     */
+    public static SoundChangeRule of(NFA target, List<String> replacement) {
+        return of(target, replacement, null, null);
+    }
+
+    /**
+     * Create a rule applied in given environment.
+     *
+     * @param target an automaton matching symbols to replace.
+     * @param replacement symbols replacing the matched ones.
+     * @param leftContext an automaton that must match symbols directly preceding the target, or null if
+     *                    the rule does not restrict them.
+     * @param rightContext an automaton that must match symbols directly following the target, or null if
+     *                     the rule does not restrict them.
+     * @return an instance of SoundChangeRule
+     */
+    public static SoundChangeRule of(NFA target, List<String> replacement, NFA leftContext, NFA rightContext) {
+        final var alphabet = target.getAlphabet();
+        final var encodedReplacement = replacement.stream().mapToInt(alphabet::intern).toArray();
+
+        return new SoundChangeRule(
+                target.toProgram(),
+                encodedReplacement,
+                leftContext == null ? null : leftContext.toProgram(),
+                rightContext == null ? null : rightContext.toProgram()
+        );
+    }
+
+    /**
+     * Create a rule applied in given environment, using already compiled automata.
+     *
+     * @param target a compiled automaton matching symbols to replace.
+     * @param replacement symbols replacing the matched ones.
+     * @param leftContext a compiled automaton that must match symbols directly preceding the target, or null if
+     *                    the rule does not restrict them.
+     * @param rightContext a compiled automaton that must match symbols directly following the target, or null if
+     *                     the rule does not restrict them.
+     * @return an instance of SoundChangeRule
+     */
+    public static SoundChangeRule of(NFAProgram target, List<String> replacement,
+                                     NFAProgram leftContext, NFAProgram rightContext) {
+        final var encodedReplacement = replacement.stream().mapToInt(target.getAlphabet()::intern).toArray();
+        return new SoundChangeRule(target, encodedReplacement, leftContext, rightContext);
+    }
+
+    NFAProgram getTarget() {
+        return target;
+    }
+
+    int[] getReplacement() {
+        return replacement;
+    }
+
+    NFAProgram getLeftContext() {
+        return leftContext;
+    }
+
+    NFAProgram getRightContext() {
+        return rightContext;
+    }
+}
@@ -0,0 +1,127 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parser of sound change rules written as {@code target > replacement / left _ right}.
+ *
+ * The target and both sides of the environment are patterns in the syntax of PatternParser, compiled through
+ * a PatternCache, so rules sharing a pattern share its compiled automaton. The environment is optional,
+ * and either of its sides can be empty. The replacement is a sequence of symbols and can be empty too.
+ * A backslash makes the following character a symbol rather than a separator.
+ *
+ * In rule files, each non-blank line is a rule, except for comments starting with {@code ;}.
+ * Instances are safe for use by multiple threads.
+ */
+public final class SoundChangeRuleParser {
+    private static final char REPLACEMENT_SEPARATOR = '>';
+    private static final char ENVIRONMENT_SEPARATOR = '/';
+    private static final char TARGET_PLACEHOLDER = '_';
+    private static final char ESCAPE = '\\';
+    private static final String COMMENT = ";";
+
+    private final PatternCache patternCache;
+
+    /**
+     * Create a parser.
+     *
+     * @param patternCache a cache compiling patterns of the rules.
+     */
+    public SoundChangeRuleParser(PatternCache patternCache) {
+        this.patternCache = patternCache;
+    }
+
+    /**
+     * Parse a rule.
+     *
+     * @param rule a rule.
+     * @return an instance of SoundChangeRule
+     * @throws IllegalArgumentException if the rule is not valid.
+     */
+    public SoundChangeRule parseRule(String rule) {
+        final var change = split(rule, ENVIRONMENT_SEPARATOR);
+        if (change.size() > 2) {
+            throw new IllegalArgumentException("More than one '" + ENVIRONMENT_SEPARATOR + "' in: " + rule);
+        }
+        final var targetAndReplacement = split(change.get(0), REPLACEMENT_SEPARATOR);
+        if (targetAndReplacement.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly one '" + REPLACEMENT_SEPARATOR + "' in: " + rule);
+        }
+
+        final var target = patternCache.compile(targetAndReplacement.get(0).strip());
+        final var replacement = patternCache.getParser().splitSymbols(unescape(targetAndReplacement.get(1)));
+        if (change.size() == 1) {
+            return SoundChangeRule.of(target, replacement, null, null);
+        }
+
+        final var environment = split(change.get(1), TARGET_PLACEHOLDER);
+        if (environment.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly one '" + TARGET_PLACEHOLDER + "' in: " + rule);
+        }
+        return SoundChangeRule.of(target, replacement, compileContext(environment.get(0)),
+                compileContext(environment.get(1)));
+    }
+
+    /**
+     * Parse rules, one per line.
+     *
+     * @param reader a reader of the rules.
+     * @return a list of rules, in order of their lines.
+     * @throws IOException if the rules cannot be read.
+     * @throws IllegalArgumentException if a rule is not valid.
+     */
+    public List<SoundChangeRule> parseRules(BufferedReader reader) throws IOException {
+        final var rules = new ArrayList<SoundChangeRule>();
+        var lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            final var rule = line.strip();
+            if (rule.isEmpty() || rule.startsWith(COMMENT)) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(rule));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid rule at line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    private NFAProgram compileContext(String pattern) {
+        return pattern.isBlank() ? null : patternCache.compile(pattern.strip());
+    }
+
+    private static List<String> split(String text, char separator) {
+        final var parts = new ArrayList<String>();
+        var start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final var c = text.charAt(i);
+            if (c == ESCAPE) {
+                i++;
+            } else if (c == separator) {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    private static String unescape(String text) {
+        final var result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final var c = text.charAt(i);
+            if (c == ESCAPE && i + 1 < text.length()) {
+                result.append(text.charAt(++i));
+            } else if (!Character.isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
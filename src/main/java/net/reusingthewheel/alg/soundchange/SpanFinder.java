@@ -0,0 +1,162 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A search for leftmost-longest matches of an automaton anywhere in a sequence of symbols.
+ *
+ * Before searching a range, the reversed automaton is run over it once, backwards from its end, with a thread
+ * started at each position. The set of states it is in at a position contains the states of the automaton
+ * from which an accepting state can be reached by consuming the symbols following the position, and it
+ * contains the accepting state of the reversed automaton if a match starts at the position. The sets of all
+ * positions are kept, so a search finds the start of the leftmost match by checking them, and then finds
+ * the end of the longest match starting there by simulating the automaton forward, dropping states that
+ * cannot reach an accepting state anymore. The simulation stops right after the end of the longest match,
+ * so each symbol of the range is consumed once by the backward pass and at most once more by the searches
+ * for non-overlapping matches.
+ *
+ * A finder does not allocate any objects per symbol. It can be reused for any number of searches, but it must not
+ * be used by multiple threads at the same time.
+ */
+final class SpanFinder {
+    private final NFAProgram program;
+    private final NFAProgram reversed;
+    private final int[] stack;
+    private final int[] reversedStack;
+    private final int stride;
+    private long[] currentSet;
+    private long[] nextSet;
+    private long[] reversedSet;
+    private long[] reversedNextSet;
+    private long[] liveStates = new long[0];
+    private final BitSet matchStarts = new BitSet();
+    private int[] symbols;
+    private int rangeStart;
+    private int rangeEnd;
+    private int end = NFAProgram.NO_MATCH;
+    private long stepCount;
+
+    SpanFinder(NFAProgram program) {
+        this.program = program;
+        this.reversed = program.reverse();
+        this.stack = new int[program.getStateCount()];
+        this.reversedStack = new int[reversed.getStateCount()];
+        this.stride = reversed.newStateSet().length;
+        this.currentSet = program.newStateSet();
+        this.nextSet = program.newStateSet();
+        this.reversedSet = reversed.newStateSet();
+        this.reversedNextSet = reversed.newStateSet();
+    }
+
+    /**
+     * Prepare a range of symbols for searches, consuming it backwards with the reversed automaton.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automaton.
+     * @param from the lowest index a match can start at, inclusive.
+     * @param to the index following the last symbol a match can contain.
+     */
+    void reset(int[] symbols, int from, int to) {
+        this.symbols = symbols;
+        this.rangeStart = from;
+        this.rangeEnd = to;
+        this.end = NFAProgram.NO_MATCH;
+        final var length = (to - from + 1) * stride;
+        if (liveStates.length < length) {
+            liveStates = new long[Math.max(length, 2 * liveStates.length)];
+        }
+        matchStarts.clear();
+
+        Arrays.fill(reversedSet, 0L);
+        reversed.addClosure(reversed.getStartState(), reversedSet, reversedStack);
+        for (int position = to; ; position--) {
+            System.arraycopy(reversedSet, 0, liveStates, (position - from) * stride, stride);
+            if (reversed.containsAcceptingState(reversedSet)) {
+                matchStarts.set(position - from);
+            }
+            if (position == from) {
+                break;
+            }
+
+            reversed.step(reversedSet, symbols[position - 1], reversedNextSet, reversedStack);
+            stepCount++;
+            // a thread starting at each position, so that matches ending anywhere are found
+            reversed.addClosure(reversed.getStartState(), reversedNextSet, reversedStack);
+            final var set = reversedSet;
+            reversedSet = reversedNextSet;
+            reversedNextSet = set;
+        }
+    }
+
+    /**
+     * Find the leftmost-longest match within the range prepared by the last reset, starting at or after given
+     * index: of all matching subsequences of the range starting there, the longest one of those starting
+     * at the lowest index.
+     *
+     * @param from the lowest index a match can start at, inclusive, not lower than the start of the range.
+     * @return the index of the first symbol of the match or NFAProgram.NO_MATCH. The end of the match
+     * is returned by getEnd.
+     */
+    int find(int from) {
+        end = NFAProgram.NO_MATCH;
+        final var offset = matchStarts.nextSetBit(from - rangeStart);
+        if (offset < 0) {
+            return NFAProgram.NO_MATCH;
+        }
+
+        final var start = rangeStart + offset;
+        Arrays.fill(currentSet, 0L);
+        program.addClosure(program.getStartState(), currentSet, stack);
+        if (program.containsAcceptingState(currentSet)) {
+            end = start;
+        }
+        for (int position = start; position < rangeEnd; position++) {
+            program.step(currentSet, symbols[position], nextSet, stack);
+            stepCount++;
+            if (!retainLiveStates(nextSet, position + 1)) {
+                break;
+            }
+            final var set = currentSet;
+            currentSet = nextSet;
+            nextSet = set;
+            if (program.containsAcceptingState(currentSet)) {
+                end = position + 1;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Remove states from which no accepting state can be reached by consuming the symbols following
+     * given position.
+     *
+     * @return true if any state is left.
+     */
+    private boolean retainLiveStates(long[] states, int position) {
+        final var base = (position - rangeStart) * stride;
+        var live = false;
+        for (int word = 0; word < states.length; word++) {
+            states[word] &= liveStates[base + word];
+            live |= states[word] != 0;
+        }
+        return live;
+    }
+
+    /**
+     * Get the end of the match found by the last search.
+     *
+     * @return the index following the last symbol of the match or NFAProgram.NO_MATCH.
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of symbols consumed by the finder in both directions since it has been created.
+     *
+     * @return the number of symbols.
+     */
+    long getStepCount() {
+        return stepCount;
+    }
+}
@@ -1,5 +1,6 @@
 package net.reusingthewheel.alg.soundchange;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -10,24 +11,36 @@ import java.util.Set;
  */
 class State {
 
-    private Map<String, State> symbolTransitions;
+    private Map<Integer, State> symbolTransitions;
+    private Map<BitSet, State> symbolClassTransitions;
     private Set<State> emptySymbolTransitions;
 
     State() {
         this.symbolTransitions = new HashMap<>();
+        this.symbolClassTransitions = new HashMap<>();
         this.emptySymbolTransitions = new HashSet<>();
     }
 
     /**
      * Add a symbol-based transition to another state.
      *
-     * @param symbol a symbol that needs to be consumed to move from this state to the next state.
+     * @param symbol an identifier of a symbol that needs to be consumed to move from this state to the next state.
      * @param to the next state for given symbol.
      */
-    void addSymbolTransitions(String symbol, State to) {
+    void addSymbolTransitions(int symbol, State to) {
         this.symbolTransitions.put(symbol, to);
     }
 
+    /**
+     * Add a transition to another state taken after consuming any symbol of a class.
+     *
+     * @param symbols identifiers of symbols of the class. The set must not be modified afterwards.
+     * @param to the next state for the symbols.
+     */
+    void addSymbolClassTransition(BitSet symbols, State to) {
+        this.symbolClassTransitions.put(symbols, to);
+    }
+
     /**
      * Add an empty symbol-based transition to another state.
      *
@@ -43,13 +56,17 @@ class State {
      * @return true if it is a final state.
      */
     Boolean isFinal() {
-        return symbolTransitions.isEmpty() && emptySymbolTransitions.isEmpty();
+        return symbolTransitions.isEmpty() && symbolClassTransitions.isEmpty() && emptySymbolTransitions.isEmpty();
     }
 
-    Map<String, State> getSymbolTransitions() {
+    Map<Integer, State> getSymbolTransitions() {
         return symbolTransitions;
     }
 
+    Map<BitSet, State> getSymbolClassTransitions() {
+        return symbolClassTransitions;
+    }
+
     Set<State> getEmptySymbolTransitions() {
         return emptySymbolTransitions;
     }
@@ -0,0 +1,129 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A tokenizer splitting text into symbol identifiers the same way PatternParser splits words into symbols:
+ * multi-character phonemes are recognized by the longest match, and any other character is a symbol by itself.
+ *
+ * Phonemes are stored in a trie of characters. Single characters are added to the trie the first time they are
+ * seen, so text is tokenized without creating strings for it. The trie is mutable, so an instance must not be used
+ * by multiple threads at the same time.
+ */
+public final class SymbolTokenizer {
+    private final Alphabet alphabet;
+    private final Node root = new Node();
+    private int[] symbols = new int[64];
+
+    /**
+     * Create a tokenizer recognizing given multi-character phonemes as single symbols.
+     *
+     * @param alphabet an alphabet used to encode symbols.
+     * @param phonemes multi-character phonemes.
+     */
+    public SymbolTokenizer(Alphabet alphabet, Set<String> phonemes) {
+        this.alphabet = alphabet;
+        for (var phoneme : phonemes) {
+            var node = root;
+            for (int i = 0; i < phoneme.length(); i++) {
+                node = node.getOrAddChild(phoneme.charAt(i));
+            }
+            node.symbol = alphabet.intern(phoneme);
+        }
+    }
+
+    /**
+     * Split a range of characters into symbols.
+     *
+     * @param chars an array of characters.
+     * @param from the index of the first character, inclusive.
+     * @param to the index of the last character, exclusive.
+     * @return an array of symbol identifiers.
+     */
+    public int[] tokenize(char[] chars, int from, int to) {
+        var length = 0;
+        var position = from;
+        while (position < to) {
+            var node = root;
+            var symbol = Alphabet.UNKNOWN_SYMBOL;
+            var end = position;
+            for (int i = position; i < to; i++) {
+                node = node.getChild(chars[i]);
+                if (node == null) {
+                    break;
+                }
+                if (node.symbol != Alphabet.UNKNOWN_SYMBOL) {
+                    symbol = node.symbol;
+                    end = i + 1;
+                }
+            }
+            if (symbol == Alphabet.UNKNOWN_SYMBOL) {
+                end = position + Character.charCount(Character.codePointAt(chars, position, to));
+                symbol = addCharacterSymbol(chars, position, end);
+            }
+
+            if (length == symbols.length) {
+                symbols = Arrays.copyOf(symbols, 2 * length);
+            }
+            symbols[length++] = symbol;
+            position = end;
+        }
+        return Arrays.copyOf(symbols, length);
+    }
+
+    /**
+     * Split a word into symbols.
+     *
+     * @param word a word.
+     * @return an array of symbol identifiers.
+     */
+    public int[] tokenize(String word) {
+        return tokenize(word.toCharArray(), 0, word.length());
+    }
+
+    private int addCharacterSymbol(char[] chars, int from, int to) {
+        var node = root;
+        for (int i = from; i < to; i++) {
+            node = node.getOrAddChild(chars[i]);
+        }
+        node.symbol = alphabet.intern(new String(chars, from, to - from));
+        return node.symbol;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int symbol = Alphabet.UNKNOWN_SYMBOL;
+
+        private Node getChild(char key) {
+            final var index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node getOrAddChild(char key) {
+            var index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            index = -index - 1;
+            final var child = new Node();
+            keys = insert(keys, index, key);
+            final var extended = new Node[children.length + 1];
+            System.arraycopy(children, 0, extended, 0, index);
+            extended[index] = child;
+            System.arraycopy(children, index, extended, index + 1, children.length - index);
+            children = extended;
+            return child;
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            final var extended = new char[array.length + 1];
+            System.arraycopy(array, 0, extended, 0, index);
+            extended[index] = value;
+            System.arraycopy(array, index, extended, index + 1, array.length - index);
+            return extended;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An automaton combining many automata, such as environments of a cascade of sound change rules,
+ * so that all of them are matched in a single pass over a word.
+ *
+ * The automata are joined like in NFA.newUnionNFA, but accepting states remember the index of the automaton
+ * they come from, so the result of matching identifies each automaton that has matched.
+ * Instances are immutable.
+ */
+public final class TaggedAutomaton {
+    private final NFAProgram program;
+    private final int automatonCount;
+
+    private TaggedAutomaton(NFAProgram program, int automatonCount) {
+        this.program = program;
+        this.automatonCount = automatonCount;
+    }
+
+    /**
+     * Combine given automata.
+     *
+     * @param automata a list of automata. The index of an automaton in the list is used to identify it in results.
+     * @return an instance of TaggedAutomaton
+     */
+    public static TaggedAutomaton of(List<NFA> automata) {
+        final var programs = automata.stream().map(NFA::toProgram).collect(Collectors.toList());
+        return new TaggedAutomaton(NFAProgram.union(programs), programs.size());
+    }
+
+    /**
+     * Get indices of automata reaching an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols a list of symbols.
+     * @return a set of indices of matching automata.
+     */
+    public BitSet getMatchingAutomata(List<String> symbols) {
+        final var encoded = getAlphabet().encode(symbols);
+        return getMatchingAutomata(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Get indices of automata reaching an accepting state after consuming all of the given symbols.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automata.
+     * @param from the index of the first symbol to consume, inclusive.
+     * @param to the index of the last symbol to consume, exclusive.
+     * @return a set of indices of matching automata.
+     */
+    public BitSet getMatchingAutomata(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var result = new BitSet(automatonCount);
+        final var matcher = program.newMatcher();
+        for (int i = from; i < to; i++) {
+            if (!matcher.feed(symbols[i])) {
+                return result;
+            }
+        }
+
+        matcher.collectAcceptingTags(result);
+        return result;
+    }
+
+    /**
+     * Get the longest matching prefix of given range of symbols for each of the automata.
+     *
+     * @param symbols an array of symbol identifiers from the alphabet of the automata.
+     * @param from the index of the first symbol of the range, inclusive.
+     * @param to the index of the last symbol of the range, exclusive.
+     * @return an array of spans of matching prefixes, indexed by automaton.
+     */
+    public MatchSpan[] getMatchingPrefixes(int[] symbols, int from, int to) {
+        Objects.checkFromToIndex(from, to, symbols.length);
+        final var ends = new int[automatonCount];
+        Arrays.fill(ends, NFAProgram.NO_MATCH);
+        final var accepted = new BitSet(automatonCount);
+        final var matcher = program.newMatcher();
+
+        matcher.collectAcceptingTags(accepted);
+        updateEnds(accepted, ends, from);
+        for (int i = from; i < to && matcher.feed(symbols[i]); i++) {
+            accepted.clear();
+            matcher.collectAcceptingTags(accepted);
+            updateEnds(accepted, ends, i + 1);
+        }
+
+        final var spans = new MatchSpan[automatonCount];
+        for (int i = 0; i < automatonCount; i++) {
+            spans[i] = ends[i] == NFAProgram.NO_MATCH ? MatchSpan.noMatch() : MatchSpan.of(from, ends[i]);
+        }
+        return spans;
+    }
+
+    private static void updateEnds(BitSet accepted, int[] ends, int end) {
+        for (int i = accepted.nextSetBit(0); i >= 0; i = accepted.nextSetBit(i + 1)) {
+            ends[i] = end;
+        }
+    }
+
+    /**
+     * Get the alphabet used to encode symbols consumed by the automata.
+     *
+     * @return the alphabet
+     */
+    public Alphabet getAlphabet() {
+        return program.getAlphabet();
+    }
+
+    /**
+     * Get the number of combined automata.
+     *
+     * @return the number of automata.
+     */
+    public int getAutomatonCount() {
+        return automatonCount;
+    }
+}
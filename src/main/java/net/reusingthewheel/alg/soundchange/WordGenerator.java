@@ -0,0 +1,513 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A generator of words accepted by an automaton, up to a maximum length.
+ *
+ * Words are generated from the deterministic form of the automaton, where each accepted word corresponds to exactly
+ * one path from the start state. For each state and length, the generator precomputes the number of words of that
+ * length accepted from the state, and the total weight of these words, where the weight of a word is the product of
+ * weights of its symbols. Random words are then built symbol by symbol, choosing each transition with probability
+ * proportional to the weight of words it leads to, so every sample is accepted and no word is ever rejected.
+ * With all weights equal to 1, every accepted word is equally likely.
+ *
+ * Instances are immutable and can be used by many threads at once, each with its own source of randomness.
+ */
+public final class WordGenerator {
+    private final Alphabet alphabet;
+    private final int maxLength;
+    private final int startState;
+    private final int[] transitionOffsets;
+    private final int[] transitionSymbols;
+    private final int[] transitionTargets;
+    private final BigInteger[][] wordCounts;
+    private final double[][] cumulativeWeights;
+    private final double[] cumulativeLengthWeights;
+
+    private WordGenerator(Alphabet alphabet, int maxLength, int startState, int[] transitionOffsets,
+                          int[] transitionSymbols, int[] transitionTargets, BigInteger[][] wordCounts,
+                          double[][] cumulativeWeights, double[] cumulativeLengthWeights) {
+        this.alphabet = alphabet;
+        this.maxLength = maxLength;
+        this.startState = startState;
+        this.transitionOffsets = transitionOffsets;
+        this.transitionSymbols = transitionSymbols;
+        this.transitionTargets = transitionTargets;
+        this.wordCounts = wordCounts;
+        this.cumulativeWeights = cumulativeWeights;
+        this.cumulativeLengthWeights = cumulativeLengthWeights;
+    }
+
+    /**
+     * Create a generator of words accepted by an automaton, with every word equally likely to be sampled.
+     *
+     * @param automaton a compiled automaton. If it has not been determinized within its state limit, it is
+     *                  determinized without a limit.
+     * @param maxLength the maximum length of generated words.
+     * @return an instance of WordGenerator
+     */
+    public static WordGenerator of(CompiledAutomaton automaton, int maxLength) {
+        return of(automaton, maxLength, Map.of());
+    }
+
+    /**
+     * Create a generator of words accepted by an automaton, sampling words with probability proportional
+     * to the product of weights of their symbols.
+     *
+     * @param automaton a compiled automaton. If it has not been determinized within its state limit, it is
+     *                  determinized without a limit.
+     * @param maxLength the maximum length of generated words.
+     * @param symbolWeights weights of symbols. Symbols without a weight have the weight of 1, and symbols with
+     *                      the weight of 0 are never sampled.
+     * @return an instance of WordGenerator
+     */
+    public static WordGenerator of(CompiledAutomaton automaton, int maxLength, Map<String, Double> symbolWeights) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("The maximum length cannot be negative, got " + maxLength);
+        }
+        for (var weight : symbolWeights.entrySet()) {
+            if (!(weight.getValue() >= 0) || weight.getValue().isInfinite()) {
+                throw new IllegalArgumentException("Invalid weight of " + weight.getKey() + ": " + weight.getValue());
+            }
+        }
+
+        final var program = automaton.getProgram();
+        final var dfa = automaton.isDeterministic() ? automaton.getDFA() : DFA.fromProgram(program).minimize();
+        final var alphabet = program.getAlphabet();
+
+        // transitions of each state, ordered by symbol, so words are enumerated in lexicographic order
+        final var symbols = new ArrayList<Integer>();
+        for (int symbol = 0; symbol < program.getSymbolColumns().length; symbol++) {
+            if (program.getSymbolColumn(symbol) != NFAProgram.NO_COLUMN) {
+                symbols.add(symbol);
+            }
+        }
+        symbols.sort(Comparator.comparing(alphabet::getSymbol));
+
+        final var stateCount = dfa.getStateCount();
+        final var transitionOffsets = new int[stateCount + 1];
+        final var transitionSymbols = new ArrayList<Integer>();
+        final var transitionTargets = new ArrayList<Integer>();
+        for (int state = 0; state < stateCount; state++) {
+            for (var symbol : symbols) {
+                final var target = dfa.step(state, symbol);
+                if (target != DFA.DEAD_STATE) {
+                    transitionSymbols.add(symbol);
+                    transitionTargets.add(target);
+                }
+            }
+            transitionOffsets[state + 1] = transitionSymbols.size();
+        }
+
+        final var generator = new Builder(dfa, maxLength, transitionOffsets, toArray(transitionSymbols),
+                toArray(transitionTargets));
+        generator.countWords();
+        generator.weighWords(symbol -> symbolWeights.getOrDefault(alphabet.getSymbol(symbol), 1.0));
+        return new WordGenerator(alphabet, maxLength, dfa.getStartState(), transitionOffsets,
+                generator.transitionSymbols, generator.transitionTargets, generator.wordCounts,
+                generator.cumulativeWeights, generator.cumulativeLengthWeights);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Get the number of accepted words of given length.
+     *
+     * @param length a length of words, at most the maximum length of the generator.
+     * @return the number of words.
+     */
+    public BigInteger countWords(int length) {
+        checkLength(length);
+        return wordCounts[length][startState];
+    }
+
+    /**
+     * Get the number of accepted words of any length up to the maximum length of the generator.
+     *
+     * @return the number of words.
+     */
+    public BigInteger countWords() {
+        var count = BigInteger.ZERO;
+        for (int length = 0; length <= maxLength; length++) {
+            count = count.add(wordCounts[length][startState]);
+        }
+        return count;
+    }
+
+    /**
+     * Sample an accepted word of any length up to the maximum length of the generator.
+     *
+     * @param random a source of randomness, used by one thread at a time.
+     * @return a list of symbols.
+     * @throws IllegalStateException if the automaton accepts no such words.
+     */
+    public List<String> sample(SplittableRandom random) {
+        final var word = sampleSymbols(random);
+        return alphabet.decode(word, 0, word.length);
+    }
+
+    /**
+     * Sample an accepted word of given length.
+     *
+     * @param random a source of randomness, used by one thread at a time.
+     * @param length the length of the word, at most the maximum length of the generator.
+     * @return a list of symbols.
+     * @throws IllegalArgumentException if the automaton accepts no words of given length.
+     */
+    public List<String> sample(SplittableRandom random, int length) {
+        final var word = sampleSymbols(random, length);
+        return alphabet.decode(word, 0, word.length);
+    }
+
+    /**
+     * Sample an accepted word of any length up to the maximum length of the generator.
+     *
+     * @param random a source of randomness, used by one thread at a time.
+     * @return an array of symbol identifiers.
+     * @throws IllegalStateException if the automaton accepts no such words.
+     */
+    public int[] sampleSymbols(SplittableRandom random) {
+        final var total = cumulativeLengthWeights[maxLength];
+        if (total == 0) {
+            throw new IllegalStateException("No words of length up to " + maxLength + " can be sampled");
+        }
+        final var length = choose(cumulativeLengthWeights, 0, maxLength + 1, random.nextDouble() * total);
+        return sampleSymbols(random, length);
+    }
+
+    /**
+     * Sample an accepted word of given length.
+     *
+     * @param random a source of randomness, used by one thread at a time.
+     * @param length the length of the word, at most the maximum length of the generator.
+     * @return an array of symbol identifiers.
+     * @throws IllegalArgumentException if the automaton accepts no words of given length.
+     */
+    public int[] sampleSymbols(SplittableRandom random, int length) {
+        checkLength(length);
+        if (wordCounts[length][startState].signum() == 0) {
+            // checked before consuming any symbol, so an empty word is not returned for a rejecting start state
+            throw new IllegalArgumentException("No words of length " + length + " can be sampled");
+        }
+        final var word = new int[length];
+        var state = startState;
+        for (int i = 0; i < length; i++) {
+            final var weights = cumulativeWeights[length - i];
+            final var from = transitionOffsets[state];
+            final var to = transitionOffsets[state + 1];
+            final var total = from == to ? 0 : weights[to - 1];
+            if (total == 0) {
+                throw new IllegalArgumentException("No words of length " + length + " can be sampled");
+            }
+            final var transition = choose(weights, from, to, random.nextDouble() * total);
+            word[i] = transitionSymbols[transition];
+            state = transitionTargets[transition];
+        }
+        return word;
+    }
+
+    /**
+     * Choose an index of a range of cumulative weights with probability proportional to its own weight.
+     */
+    private static int choose(double[] cumulativeWeights, int from, int to, double value) {
+        var low = from;
+        var high = to - 1;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        // the value can be rounded up to the total weight, so skip trailing indexes without weight
+        while (low > from && cumulativeWeights[low] == cumulativeWeights[low - 1]) {
+            low--;
+        }
+        return low;
+    }
+
+    /**
+     * Create a stream of sampled words. The stream can be processed in parallel: each of its parts uses its own
+     * source of randomness, split from the given one.
+     *
+     * @param count the number of words to sample.
+     * @param random a source of randomness, split for parts of the stream.
+     * @return a stream of lists of symbols.
+     */
+    public Stream<List<String>> samples(long count, SplittableRandom random) {
+        if (count < 0) {
+            throw new IllegalArgumentException("The number of words cannot be negative, got " + count);
+        }
+        return StreamSupport.stream(new SampleSpliterator(random, 0, count), false)
+                .map(word -> alphabet.decode(word, 0, word.length));
+    }
+
+    /**
+     * Create a lazy stream of all accepted words up to the maximum length of the generator, ordered by length,
+     * then lexicographically by symbols.
+     *
+     * @return a stream of lists of symbols.
+     */
+    public Stream<List<String>> enumerate() {
+        final var words = Spliterators.spliteratorUnknownSize(enumerateSymbols(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(words, false).map(word -> alphabet.decode(word, 0, word.length));
+    }
+
+    /**
+     * Create a lazy iterator over all accepted words up to the maximum length of the generator, ordered by length,
+     * then lexicographically by symbols.
+     *
+     * Branches of the automaton leading to no accepted word of the remaining length are skipped, so the time
+     * needed to get each next word is proportional to the length of the word.
+     *
+     * @return an iterator over arrays of symbol identifiers.
+     */
+    public Iterator<int[]> enumerateSymbols() {
+        return new WordIterator();
+    }
+
+    private void checkLength(int length) {
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("The length must be between 0 and " + maxLength + ", got " + length);
+        }
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Tables computed while creating a generator.
+     */
+    private static final class Builder {
+        private final DFA dfa;
+        private final int maxLength;
+        private final int[] transitionOffsets;
+        private final int[] transitionSymbols;
+        private final int[] transitionTargets;
+        private BigInteger[][] wordCounts;
+        private double[][] cumulativeWeights;
+        private double[] cumulativeLengthWeights;
+
+        private Builder(DFA dfa, int maxLength, int[] transitionOffsets, int[] transitionSymbols,
+                        int[] transitionTargets) {
+            this.dfa = dfa;
+            this.maxLength = maxLength;
+            this.transitionOffsets = transitionOffsets;
+            this.transitionSymbols = transitionSymbols;
+            this.transitionTargets = transitionTargets;
+        }
+
+        private void countWords() {
+            final var stateCount = dfa.getStateCount();
+            wordCounts = new BigInteger[maxLength + 1][stateCount];
+            for (int state = 0; state < stateCount; state++) {
+                wordCounts[0][state] = dfa.isAccepting(state) ? BigInteger.ONE : BigInteger.ZERO;
+            }
+            for (int length = 1; length <= maxLength; length++) {
+                for (int state = 0; state < stateCount; state++) {
+                    var count = BigInteger.ZERO;
+                    for (int t = transitionOffsets[state]; t < transitionOffsets[state + 1]; t++) {
+                        count = count.add(wordCounts[length - 1][transitionTargets[t]]);
+                    }
+                    wordCounts[length][state] = count;
+                }
+            }
+        }
+
+        /**
+         * Compute weights of words accepted from each state. Weights of words of each length are divided by
+         * the largest of them, so that they do not overflow, and the logarithms of the divisors are kept to compare
+         * weights of words of different lengths.
+         */
+        private void weighWords(IntToDoubleFunction symbolWeight) {
+            final var stateCount = dfa.getStateCount();
+            final var transitionWeights = new double[transitionSymbols.length];
+            for (int t = 0; t < transitionWeights.length; t++) {
+                transitionWeights[t] = symbolWeight.applyAsDouble(transitionSymbols[t]);
+            }
+
+            final var weights = new double[maxLength + 1][stateCount];
+            final var logScales = new double[maxLength + 1];
+            for (int state = 0; state < stateCount; state++) {
+                weights[0][state] = dfa.isAccepting(state) ? 1 : 0;
+            }
+            cumulativeWeights = new double[maxLength + 1][];
+            cumulativeWeights[0] = new double[0];
+            for (int length = 1; length <= maxLength; length++) {
+                final var cumulative = new double[transitionSymbols.length];
+                var largest = 0.0;
+                for (int state = 0; state < stateCount; state++) {
+                    var sum = 0.0;
+                    for (int t = transitionOffsets[state]; t < transitionOffsets[state + 1]; t++) {
+                        sum += transitionWeights[t] * weights[length - 1][transitionTargets[t]];
+                        cumulative[t] = sum;
+                    }
+                    weights[length][state] = sum;
+                    largest = Math.max(largest, sum);
+                }
+                cumulativeWeights[length] = cumulative;
+                if (largest > 0) {
+                    for (int state = 0; state < stateCount; state++) {
+                        weights[length][state] /= largest;
+                    }
+                }
+                logScales[length] = logScales[length - 1] + (largest > 0 ? Math.log(largest) : 0);
+            }
+
+            final var start = dfa.getStartState();
+            var largestLogWeight = Double.NEGATIVE_INFINITY;
+            for (int length = 0; length <= maxLength; length++) {
+                if (weights[length][start] > 0) {
+                    largestLogWeight = Math.max(largestLogWeight, logScales[length] + Math.log(weights[length][start]));
+                }
+            }
+            cumulativeLengthWeights = new double[maxLength + 1];
+            var sum = 0.0;
+            for (int length = 0; length <= maxLength; length++) {
+                if (weights[length][start] > 0) {
+                    sum += Math.exp(logScales[length] + Math.log(weights[length][start]) - largestLogWeight);
+                }
+                cumulativeLengthWeights[length] = sum;
+            }
+        }
+    }
+
+    /**
+     * A spliterator of sampled words, split together with its source of randomness.
+     */
+    private final class SampleSpliterator implements Spliterator<int[]> {
+        private final SplittableRandom random;
+        private long index;
+        private final long fence;
+
+        private SampleSpliterator(SplittableRandom random, long index, long fence) {
+            this.random = random;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(sampleSymbols(random));
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            final var middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            final var prefix = new SampleSpliterator(random.split(), index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+    }
+
+    /**
+     * An iterator over accepted words, searching the automaton depth-first for words of each length in turn.
+     */
+    private final class WordIterator implements Iterator<int[]> {
+        private int length = -1;
+        private int depth = -1;
+        private int[] word;
+        private int[] states;
+        private int[] transitions;
+        private int[] next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = findNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var result = next;
+            next = null;
+            return result;
+        }
+
+        private int[] findNext() {
+            while (length <= maxLength) {
+                if (depth < 0) {
+                    startLength(length + 1);
+                    continue;
+                }
+                if (depth == length) {
+                    depth--;
+                    return word.clone();
+                }
+
+                final var remaining = length - depth - 1;
+                final var end = transitionOffsets[states[depth] + 1];
+                var transition = transitions[depth] + 1;
+                while (transition < end && wordCounts[remaining][transitionTargets[transition]].signum() == 0) {
+                    transition++;
+                }
+                transitions[depth] = transition;
+                if (transition == end) {
+                    depth--;
+                    continue;
+                }
+
+                word[depth] = transitionSymbols[transition];
+                states[depth + 1] = transitionTargets[transition];
+                depth++;
+                if (depth < length) {
+                    transitions[depth] = transitionOffsets[states[depth]] - 1;
+                }
+            }
+            return null;
+        }
+
+        private void startLength(int newLength) {
+            length = newLength;
+            if (length > maxLength || wordCounts[length][startState].signum() == 0) {
+                return;
+            }
+            word = new int[length];
+            states = new int[length + 1];
+            transitions = new int[length];
+            states[0] = startState;
+            depth = 0;
+            if (length > 0) {
+                transitions[0] = transitionOffsets[startState] - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reader of a word list with a word per line, encoding each word as symbol identifiers.
+ *
+ * The input is read from a channel in chunks of a fixed size and decoded into a buffer of characters, which is
+ * tokenized in place, so neither the input nor its lines are ever loaded as a whole or converted to strings.
+ * The buffer of characters grows only to fit the longest line. Both line feeds and carriage return
+ * and line feed pairs end lines. An instance must not be used by multiple threads at the same time.
+ */
+public final class WordReader implements Closeable {
+    /**
+     * The default size of chunks of the input, in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final SymbolTokenizer tokenizer;
+    private final ByteBuffer bytes;
+    private CharBuffer chars;
+    private int searchPosition;
+    private boolean endOfInput;
+
+    WordReader(ReadableByteChannel channel, Charset charset, SymbolTokenizer tokenizer, int chunkSize) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder();
+        this.tokenizer = tokenizer;
+        this.bytes = ByteBuffer.allocate(chunkSize);
+        this.chars = CharBuffer.allocate(chunkSize);
+        this.chars.flip();
+    }
+
+    /**
+     * Open a word list file.
+     *
+     * @param path a path to the file.
+     * @param charset the encoding of the file.
+     * @param tokenizer a tokenizer splitting words into symbols.
+     * @return an instance of WordReader
+     * @throws IOException if the file cannot be opened.
+     */
+    public static WordReader open(Path path, Charset charset, SymbolTokenizer tokenizer) throws IOException {
+        return new WordReader(FileChannel.open(path, StandardOpenOption.READ), charset, tokenizer, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Read the next word.
+     *
+     * @return an array of symbol identifiers or null if there are no more words.
+     * @throws IOException if the input cannot be read or decoded.
+     */
+    public int[] readWord() throws IOException {
+        while (true) {
+            final var array = chars.array();
+            final var start = chars.arrayOffset() + chars.position();
+            final var limit = chars.arrayOffset() + chars.limit();
+            for (int i = start + searchPosition; i < limit; i++) {
+                if (array[i] == '\n') {
+                    final var end = i > start && array[i - 1] == '\r' ? i - 1 : i;
+                    chars.position(i + 1 - chars.arrayOffset());
+                    searchPosition = 0;
+                    return tokenizer.tokenize(array, start, end);
+                }
+            }
+            searchPosition = limit - start;
+
+            if (endOfInput) {
+                if (!chars.hasRemaining()) {
+                    return null;
+                }
+                chars.position(chars.limit());
+                searchPosition = 0;
+                return tokenizer.tokenize(array, start, array[limit - 1] == '\r' ? limit - 1 : limit);
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Read words into an array, until it is full or there are no more words.
+     *
+     * @param words an array to store the words in.
+     * @return the number of words read, 0 if there are no more words.
+     * @throws IOException if the input cannot be read or decoded.
+     */
+    public int readWords(int[][] words) throws IOException {
+        var count = 0;
+        while (count < words.length) {
+            final var word = readWord();
+            if (word == null) {
+                break;
+            }
+            words[count++] = word;
+        }
+        return count;
+    }
+
+    private void fill() throws IOException {
+        chars.compact();
+        final var decoded = chars.position();
+        endOfInput = channel.read(bytes) < 0;
+        bytes.flip();
+        var result = decoder.decode(bytes, chars, endOfInput);
+        while (result.isOverflow() && chars.position() == decoded) {
+            // the current line does not fit the buffer, or the next character does not fit what is left of it
+            grow();
+            result = decoder.decode(bytes, chars, endOfInput);
+        }
+        bytes.compact();
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (endOfInput) {
+            if (result.isOverflow()) {
+                // keep the remaining bytes for the next fill
+                endOfInput = false;
+            } else {
+                decoder.flush(chars);
+            }
+        }
+        chars.flip();
+    }
+
+    private void grow() {
+        final var larger = CharBuffer.allocate(2 * chars.capacity());
+        chars.flip();
+        larger.put(chars);
+        chars = larger;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
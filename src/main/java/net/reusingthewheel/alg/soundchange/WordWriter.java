@@ -0,0 +1,121 @@
+package net.reusingthewheel.alg.soundchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A writer of a word list with a word per line, decoding words from symbol identifiers.
+ *
+ * Symbols are copied into a buffer of characters of a fixed size, encoded into a buffer of bytes, and written
+ * to a channel whenever the buffer of bytes is full, so the memory used does not depend on the amount of output.
+ * An instance must not be used by multiple threads at the same time.
+ */
+public final class WordWriter implements Closeable {
+    /**
+     * The default size of chunks of the output, in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final Alphabet alphabet;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+
+    WordWriter(WritableByteChannel channel, Charset charset, Alphabet alphabet, int chunkSize) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder();
+        this.alphabet = alphabet;
+        this.chars = CharBuffer.allocate(chunkSize);
+        this.bytes = ByteBuffer.allocate(chunkSize);
+    }
+
+    /**
+     * Create a word list file, replacing an existing one.
+     *
+     * @param path a path to the file.
+     * @param charset the encoding of the file.
+     * @param alphabet an alphabet used to decode symbols.
+     * @return an instance of WordWriter
+     * @throws IOException if the file cannot be created.
+     */
+    public static WordWriter create(Path path, Charset charset, Alphabet alphabet) throws IOException {
+        final var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new WordWriter(channel, charset, alphabet, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Write a word, followed by a line feed.
+     *
+     * @param word an array of symbol identifiers.
+     * @throws IOException if the output cannot be encoded or written.
+     */
+    public void writeWord(int[] word) throws IOException {
+        for (var symbol : word) {
+            write(alphabet.getSymbol(symbol));
+        }
+        write("\n");
+    }
+
+    private void write(String text) throws IOException {
+        var position = 0;
+        while (position < text.length()) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            final var count = Math.min(chars.remaining(), text.length() - position);
+            chars.put(text, position, position + count);
+            position += count;
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            final var result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (!result.isOverflow()) {
+                break;
+            }
+            writeBytes();
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Write all buffered words and close the output.
+     *
+     * @throws IOException if the output cannot be encoded or written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -3,12 +3,87 @@
  */
 package net.reusingthewheel.alg;
 
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
-import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 class AppTest {
-    @Test void appHasAGreeting() {
-        App classUnderTest = new App();
-        assertNotNull(classUnderTest.getGreeting(), "app should have a greeting");
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return App.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRunAppliesRulesToAllWordLists(@TempDir Path directory) throws IOException {
+        var rules = Files.writeString(directory.resolve("rules.txt"), String.join("\n",
+                "; voicing between vowels",
+                "k > g / [ae] _ [ae]",
+                "",
+                "th > t / # _",
+                "a > e"
+        ));
+        var first = Files.writeString(directory.resolve("first.txt"), "akak\nthak\n");
+        var second = Files.writeString(directory.resolve("second.txt"), "kath\r\n\nathak");
+        var output = directory.resolve("output.txt");
+
+        var status = run("--phonemes=th", "--batch-size=2", rules.toString(), output.toString(),
+                first.toString(), second.toString());
+
+        Assertions.assertThat(status).isEqualTo(0);
+        Assertions.assertThat(Files.readAllLines(output)).containsExactly("egek", "tek", "keth", "", "ethek");
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("Processed 5 words");
+    }
+
+    @Test
+    void testRunGivesTheSameResultInSequentialMode(@TempDir Path directory) throws IOException {
+        var rules = Files.writeString(directory.resolve("rules.txt"), "k > g / [ae] _ [ae]\n");
+        var words = Files.write(directory.resolve("words.txt"), List.of("akak", "ekekka", "kak"));
+        var output = directory.resolve("output.txt");
+
+        Assertions.assertThat(run("--sequential", rules.toString(), output.toString(), words.toString())).isEqualTo(0);
+        Assertions.assertThat(Files.readAllLines(output)).containsExactly("agak", "egekka", "kak");
+    }
+
+    @Test
+    void testRunGivesTheSameResultWithMatchCache(@TempDir Path directory) throws IOException {
+        // the right context cannot be determinized, so it is checked through the cache
+        var rules = Files.writeString(directory.resolve("rules.txt"),
+                "k > g / [ae] _ [ab]*a" + "[ab]".repeat(12) + "\n");
+        var words = Files.write(directory.resolve("words.txt"), List.of("akaaaaaaaaaaaaa", "akbbbbbbbbbbbbb", "kak"));
+        var output = directory.resolve("output.txt");
+
+        Assertions.assertThat(run("--match-cache-size=64", rules.toString(), output.toString(), words.toString()))
+                .isEqualTo(0);
+        Assertions.assertThat(Files.readAllLines(output)).containsExactly("agaaaaaaaaaaaaa", "akbbbbbbbbbbbbb", "kak");
+    }
+
+    @Test
+    void testRunReportsInvalidArguments() {
+        Assertions.assertThat(run("rules.txt", "output.txt")).isEqualTo(2);
+        Assertions.assertThat(run("--batch-size=0", "rules.txt", "output.txt", "words.txt")).isEqualTo(2);
+        Assertions.assertThat(run("--match-cache-size=-1", "rules.txt", "output.txt", "words.txt")).isEqualTo(2);
+        Assertions.assertThat(err.toString(StandardCharsets.UTF_8)).contains(App.USAGE);
+    }
+
+    @Test
+    void testRunReportsInvalidRule(@TempDir Path directory) throws IOException {
+        var rules = Files.writeString(directory.resolve("rules.txt"), "a > e\na e\n");
+        var words = Files.writeString(directory.resolve("words.txt"), "a\n");
+
+        var status = run(rules.toString(), directory.resolve("output.txt").toString(), words.toString());
+
+        Assertions.assertThat(status).isEqualTo(1);
+        Assertions.assertThat(err.toString(StandardCharsets.UTF_8)).contains("line 2");
     }
 }
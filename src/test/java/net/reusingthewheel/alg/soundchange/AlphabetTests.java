@@ -0,0 +1,39 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class AlphabetTests {
+
+    @Test
+    void testInternReturnsTheSameIdentifierForTheSameSymbol() {
+        var alphabet = new Alphabet();
+        var first = alphabet.intern("th");
+        var second = alphabet.intern("a");
+
+        Assertions.assertThat(alphabet.intern("th")).isEqualTo(first);
+        Assertions.assertThat(second).isEqualTo(first + 1);
+        Assertions.assertThat(alphabet.size()).isEqualTo(2);
+        Assertions.assertThat(alphabet.getSymbol(first)).isEqualTo("th");
+    }
+
+    @Test
+    void testEncodeMapsSymbolsThatHaveNotBeenInternedToUnknownSymbol() {
+        var alphabet = new Alphabet();
+        alphabet.intern("a");
+        alphabet.intern("b");
+
+        Assertions.assertThat(alphabet.encode(List.of("b", "x", "a"))).containsExactly(1, Alphabet.UNKNOWN_SYMBOL, 0);
+        Assertions.assertThat(alphabet.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testDecodeReturnsSymbolsOfTheGivenRange() {
+        var alphabet = new Alphabet();
+        var encoded = new int[]{alphabet.intern("a"), alphabet.intern("b"), alphabet.intern("c")};
+
+        Assertions.assertThat(alphabet.decode(encoded, 1, 3)).containsExactly("b", "c");
+    }
+}
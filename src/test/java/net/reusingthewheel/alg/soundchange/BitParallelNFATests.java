@@ -0,0 +1,32 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class BitParallelNFATests {
+
+    @Test
+    void testPositionsSpanningManyFollowTables() {
+        var automaton = NFA.newSymbolNFA("a");
+        for (int i = 0; i < 40; i++) {
+            automaton = NFA.newConcatenateNFA(automaton, NFA.newSymbolNFA(i % 2 == 0 ? "b" : "a"));
+        }
+        var bitParallel = BitParallelNFA.fromProgram(automaton.toProgram());
+        var word = Alphabet.getDefault().intern(List.of("a", "b", "a", "b"));
+
+        Assertions.assertThat(bitParallel.getPositionCount()).isEqualTo(41);
+        Assertions.assertThat(bitParallel.isMatch(word, 0, word.length)).isFalse();
+        Assertions.assertThat(bitParallel.getMatchingPrefix(word, 0, word.length)).isEqualTo(MatchSpan.noMatch());
+    }
+
+    @Test
+    void testFromProgramReturnsNullForTooManyPositions() {
+        var automaton = NFA.newSymbolNFA("a");
+        for (int i = 0; i < BitParallelNFA.MAX_POSITIONS; i++) {
+            automaton = NFA.newConcatenateNFA(automaton, NFA.newSymbolNFA("a"));
+        }
+        Assertions.assertThat(BitParallelNFA.fromProgram(automaton.toProgram())).isNull();
+    }
+}
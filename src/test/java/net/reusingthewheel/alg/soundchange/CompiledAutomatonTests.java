@@ -0,0 +1,52 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+class CompiledAutomatonTests {
+
+    @Test
+    void testDeterminizationStopsAtStateLimit() {
+        Assertions.assertThat(CompiledAutomaton.of(NFATests.newNestedNFA().toProgram()).isDeterministic()).isTrue();
+        Assertions.assertThat(CompiledAutomaton.of(NFATests.newNestedNFA().toProgram(), 1).isDeterministic()).isFalse();
+    }
+
+    @Test
+    void testBitParallelFormIsUsedIfAutomatonIsNotDeterminized() {
+        var compiled = CompiledAutomaton.of(NFATests.newNestedNFA().toProgram(), 0);
+
+        Assertions.assertThat(compiled.isDeterministic()).isFalse();
+        Assertions.assertThat(compiled.isBitParallel()).isTrue();
+        Assertions.assertThat(CompiledAutomaton.of(NFATests.newNestedNFA().toProgram()).isBitParallel()).isFalse();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,80", "false,79"})
+    void testLargeAutomatonIsMatchedByProgram(boolean result, int length) {
+        var automaton = NFA.newSymbolNFA("a");
+        for (int i = 1; i < 80; i++) {
+            automaton = NFA.newConcatenateNFA(automaton, NFA.newSymbolNFA("a"));
+        }
+        var compiled = CompiledAutomaton.of(automaton.toProgram(), 0);
+
+        Assertions.assertThat(compiled.isBitParallel()).isFalse();
+        Assertions.assertThat(compiled.isMatch(Collections.nCopies(length, "a"))).isEqualTo(result);
+    }
+
+    @Test
+    void testSharedInstanceMatchesFromManyThreads() {
+        var compiled = NFATests.newNestedNFA().compile();
+        var word = Alphabet.getDefault().intern(List.of("a", "a", "b", "b"));
+
+        var matches = IntStream.range(0, 10_000).parallel()
+                .filter(i -> compiled.isMatch(word, 0, word.length - i % 2))
+                .count();
+        Assertions.assertThat(matches).isEqualTo(10_000);
+    }
+}
@@ -0,0 +1,96 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.Set;
+
+class DFATests {
+
+    private void testAutomaton(NFA automaton, List<String> symbols, boolean expected) {
+        var test = Assertions.assertThat(automaton.toDFA().isMatch(symbols));
+        if (expected) {
+            test.isTrue();
+        } else {
+            test.isFalse();
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,", "false,b", "false,ax", "false,bx", "false,bx", "false,xa"})
+    void testIsMatchForEmptySymbolNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newEmptySymbolNFA(), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,a", "false,b", "false,ax", "false,bx", "false,bx", "false,xa"})
+    void testIsMatchForSymbolNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newSymbolNFA("a"), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,a", "true,b", "false,ax", "false,bx", "false,xb", "false,xa"})
+    void testIsMatchForUnionNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,ab", "false,a", "false,b", "false,ba", "false,abx", "false,xab"})
+    void testIsMatchForConcatenateNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,a", "true,", "true,aa", "false,b", "false,ax", "false,xa"})
+    void testIsMatchForClosureNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,a", "true,", "false,aa", "false,b", "false,ax", "false,xa"})
+    void testIsMatchForZeroOrOneNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newZeroOrOneNFA(NFA.newSymbolNFA("a")), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,a", "false,", "true,aa", "false,b", "false,ax", "false,xa"})
+    void testIsMatchForOneOrMoreNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        testAutomaton(NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a")), symbols, result);
+    }
+
+    @Test
+    void testSymbolClassDoesNotAddStates() {
+        var vowels = Set.of("a", "e", "i", "o", "u", "y");
+        var automaton = NFA.newKleeneClosureNFA(NFA.newSymbolClassNFA(vowels));
+
+        Assertions.assertThat(automaton.toDFA().minimize().getStateCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testMinimizeMergesEquivalentStates() {
+        var automaton = NFA.newKleeneClosureNFA(NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")));
+        var dfa = automaton.toDFA();
+        var minimized = dfa.minimize();
+
+        Assertions.assertThat(dfa.getStateCount()).isEqualTo(3);
+        Assertions.assertThat(minimized.getStateCount()).isEqualTo(1);
+        Assertions.assertThat(minimized.getOriginalStateCount()).isEqualTo(dfa.getStateCount());
+    }
+
+    @Test
+    void testMinimizeMergesEquivalentBranchesOfUnion() {
+        var automaton = NFA.newUnionNFA(
+                NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")),
+                NFA.newConcatenateNFA(NFA.newSymbolNFA("c"), NFA.newSymbolNFA("b"))
+        );
+        var minimized = automaton.toDFA().minimize();
+
+        Assertions.assertThat(minimized.getStateCount()).isEqualTo(3);
+        Assertions.assertThat(minimized.isMatch(List.of("c", "b"))).isTrue();
+        Assertions.assertThat(minimized.isMatch(List.of("b"))).isFalse();
+    }
+}
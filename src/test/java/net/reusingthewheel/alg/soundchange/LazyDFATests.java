@@ -0,0 +1,82 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+class LazyDFATests {
+
+    private static NFA newAutomaton() {
+        var symbol = NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b"));
+        return NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(symbol), NFA.newConcatenateNFA(
+                NFA.newSymbolNFA("a"), NFA.newConcatenateNFA(NFA.newSymbolNFA("b"), NFA.newSymbolNFA("b"))
+        ));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,abb,2", "true,babaabb,2", "false,abba,2", "false,,2", "true,aabb,100", "false,abab,100"})
+    void testIsMatch(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols,
+                     int maxStates) {
+        var automaton = newAutomaton();
+        var encoded = automaton.getAlphabet().encode(symbols);
+        var lazyDFA = LazyDFA.withStateLimit(automaton.toProgram(), maxStates);
+
+        Assertions.assertThat(lazyDFA.isMatch(encoded, 0, encoded.length)).isEqualTo(result);
+    }
+
+    @Test
+    void testNFACreatesLazyDFA() {
+        var automaton = newAutomaton();
+        var lazyDFA = automaton.toLazyDFA(2);
+        var encoded = automaton.getAlphabet().encode(List.of("b", "a", "b", "b"));
+
+        Assertions.assertThat(lazyDFA).isNotSameAs(automaton.toLazyDFA(2));
+        Assertions.assertThat(lazyDFA.isMatch(encoded, 0, encoded.length)).isTrue();
+        Assertions.assertThat(lazyDFA.getCachedStateCount()).isLessThanOrEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"abbabbx,6", "babbaxabb,4", "abaa,-1"})
+    void testGetMatchingPrefix(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols, int end) {
+        var automaton = newAutomaton();
+        var encoded = automaton.getAlphabet().encode(symbols);
+        var lazyDFA = LazyDFA.withStateLimit(automaton.toProgram(), 3);
+        var expected = end < 0 ? MatchSpan.noMatch() : MatchSpan.of(0, end);
+
+        Assertions.assertThat(lazyDFA.getMatchingPrefix(encoded, 0, encoded.length)).isEqualTo(expected);
+    }
+
+    @Test
+    void testCountsCacheHitsAndMisses() {
+        var automaton = newAutomaton();
+        var encoded = automaton.getAlphabet().encode(List.of("a", "b", "b"));
+        var lazyDFA = LazyDFA.withStateLimit(automaton.toProgram(), 100);
+
+        lazyDFA.isMatch(encoded, 0, encoded.length);
+        Assertions.assertThat(lazyDFA.getMissCount()).isEqualTo(3L);
+        Assertions.assertThat(lazyDFA.getHitCount()).isEqualTo(0L);
+
+        lazyDFA.isMatch(encoded, 0, encoded.length);
+        Assertions.assertThat(lazyDFA.getMissCount()).isEqualTo(3L);
+        Assertions.assertThat(lazyDFA.getHitCount()).isEqualTo(3L);
+        Assertions.assertThat(lazyDFA.getFlushCount()).isEqualTo(0L);
+        Assertions.assertThat(lazyDFA.getCachedStateCount()).isEqualTo(4);
+    }
+
+    @Test
+    void testFallsBackToNFASimulationWhenCacheIsFlushedTooOften() {
+        var automaton = newAutomaton();
+        var encoded = automaton.getAlphabet().encode(List.of("a", "b", "a", "b", "b", "a", "a", "b", "b"));
+        var lazyDFA = LazyDFA.withStateLimit(automaton.toProgram(), 2);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThat(lazyDFA.isMatch(encoded, 0, encoded.length)).isTrue();
+        }
+        Assertions.assertThat(lazyDFA.getFlushCount()).isGreaterThan(0L);
+        Assertions.assertThat(lazyDFA.isUsingFallback()).isTrue();
+    }
+}
@@ -0,0 +1,89 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class LexiconTrieTests {
+
+    private static final List<List<String>> LEXICON = List.of(
+            List.of("t", "a", "k"),
+            List.of("t", "a"),
+            List.of("t", "a", "k", "a"),
+            List.of("p", "a"),
+            List.of(),
+            List.of("t", "a")
+    );
+
+    private static NFA newNFA() {
+        // t a (k a)?
+        return NFA.newConcatenateNFA(
+                NFA.newConcatenateNFA(NFA.newSymbolNFA("t"), NFA.newSymbolNFA("a")),
+                NFA.newZeroOrOneNFA(NFA.newConcatenateNFA(NFA.newSymbolNFA("k"), NFA.newSymbolNFA("a")))
+        );
+    }
+
+    @Test
+    void testGetAcceptedWords() {
+        var automaton = newNFA().compile();
+        var trie = LexiconTrie.of(LEXICON);
+
+        Assertions.assertThat(trie.getAcceptedWords(automaton))
+                .containsExactly(List.of("t", "a"), List.of("t", "a", "k", "a"), List.of("t", "a"));
+    }
+
+    @Test
+    void testGetAcceptedWordsWithoutDeterminization() {
+        var automaton = CompiledAutomaton.of(newNFA().toProgram(), 0);
+        var trie = LexiconTrie.of(LEXICON);
+
+        Assertions.assertThat(trie.getAcceptedWordIndexes(automaton).stream().toArray()).containsExactly(1, 2, 5);
+    }
+
+    @Test
+    void testGetWordsWithMatchingPrefix() {
+        var automaton = newNFA();
+        var trie = LexiconTrie.of(LEXICON);
+
+        Assertions.assertThat(trie.getWordIndexesWithMatchingPrefix(automaton.compile()).stream().toArray())
+                .containsExactly(0, 1, 2, 5);
+        Assertions.assertThat(trie.getWordIndexesWithMatchingPrefix(CompiledAutomaton.of(automaton.toProgram(), 0))
+                .stream().toArray()).containsExactly(0, 1, 2, 5);
+    }
+
+    @Test
+    void testAutomatonAcceptingEmptySequenceMatchesPrefixOfEveryWord() {
+        var trie = LexiconTrie.of(LEXICON);
+        var automaton = NFA.newKleeneClosureNFA(NFA.newSymbolNFA("x")).compile();
+
+        Assertions.assertThat(trie.getAcceptedWords(automaton)).containsExactly(List.of());
+        Assertions.assertThat(trie.getWordsWithMatchingPrefix(automaton)).hasSize(LEXICON.size());
+    }
+
+    @Test
+    void testWordsSharePrefixNodes() {
+        Alphabet.getDefault().intern(List.of("t", "a", "k", "p"));
+        var trie = LexiconTrie.of(LEXICON);
+
+        Assertions.assertThat(trie.size()).isEqualTo(6);
+        Assertions.assertThat(trie.getNodeCount()).isEqualTo(7);
+    }
+
+    @Test
+    void testUnknownSymbolsAreNotInterned() {
+        var automaton = newNFA();
+        var alphabetSize = Alphabet.getDefault().size();
+        var trie = LexiconTrie.of(List.of(
+                List.of("t", "a", "unknown-1"),
+                List.of("t", "a", "unknown-2", "k", "a"),
+                List.of("unknown-1", "t", "a"),
+                List.of("t", "a")
+        ));
+
+        Assertions.assertThat(Alphabet.getDefault().size()).isEqualTo(alphabetSize);
+        Assertions.assertThat(trie.getAcceptedWordIndexes(automaton.compile()).stream().toArray()).containsExactly(3);
+        Assertions.assertThat(trie.getWordIndexesWithMatchingPrefix(CompiledAutomaton.of(automaton.toProgram(), 0))
+                .stream().toArray()).containsExactly(0, 1, 3);
+    }
+}
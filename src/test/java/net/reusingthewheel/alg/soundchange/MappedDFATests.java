@@ -0,0 +1,125 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class MappedDFATests {
+
+    @TempDir
+    Path directory;
+
+    private MappedDFA saveAndLoad(NFA automaton) throws IOException {
+        var path = directory.resolve("automaton.bin");
+        automaton.toDFA().minimize().save(path);
+        return MappedDFA.load(path);
+    }
+
+    @ParameterizedTest
+    @MethodSource("net.reusingthewheel.alg.soundchange.NFATests#getArgsForNestedNFA")
+    void testIsMatchForLoadedAutomaton(boolean result, List<String> symbols) throws IOException {
+        Assertions.assertThat(saveAndLoad(NFATests.newNestedNFA()).isMatch(symbols)).isEqualTo(result);
+    }
+
+    @Test
+    void testGetMatchingPrefixForLoadedAutomaton() throws IOException {
+        var loaded = saveAndLoad(NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a")));
+        var encoded = loaded.getAlphabet().encode(List.of("a", "a", "b"));
+
+        Assertions.assertThat(loaded.getMatchingPrefix(encoded, 0, encoded.length)).isEqualTo(MatchSpan.of(0, 2));
+        Assertions.assertThat(loaded.getMatchingPrefix(encoded, 2, encoded.length)).isEqualTo(MatchSpan.noMatch());
+    }
+
+    @ParameterizedTest
+    @MethodSource("net.reusingthewheel.alg.soundchange.NFATests#getArgsForSymbolClassSequenceNFA")
+    void testIsMatchForLoadedSymbolClassAutomaton(boolean result, List<String> symbols) throws IOException {
+        Assertions.assertThat(saveAndLoad(NFATests.newSymbolClassSequenceNFA()).isMatch(symbols)).isEqualTo(result);
+    }
+
+    @Test
+    void testLoadInternsSymbolsInGivenAlphabet() throws IOException {
+        var path = directory.resolve("automaton.bin");
+        NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")).toDFA().save(path);
+        var alphabet = new Alphabet();
+        alphabet.intern("x");
+
+        var loaded = MappedDFA.load(path, alphabet);
+
+        Assertions.assertThat(loaded.getAlphabet()).isSameAs(alphabet);
+        Assertions.assertThat(loaded.isMatch(List.of("a", "b"))).isTrue();
+        Assertions.assertThat(alphabet.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testLoadThrowsIOExceptionForInvalidFile() throws IOException {
+        var path = directory.resolve("invalid.bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        Assertions.assertThatThrownBy(() -> MappedDFA.load(path)).isInstanceOf(IOException.class);
+    }
+
+    private Path writeAutomatonFile(int symbolColumn, int columnCount, int stateCount, int startState,
+                                    int transition, int transitionCount) throws IOException {
+        var path = directory.resolve("corrupt.bin");
+        try (var output = new DataOutputStream(Files.newOutputStream(path))) {
+            output.writeInt(MappedDFA.MAGIC);
+            output.writeInt(MappedDFA.VERSION);
+            output.writeInt(1);
+            output.writeInt(1);
+            output.writeByte('q');
+            output.writeInt(symbolColumn);
+            output.writeInt(columnCount);
+            output.writeInt(stateCount);
+            output.writeInt(startState);
+            while (output.size() % Long.BYTES != 0) {
+                output.writeByte(0);
+            }
+            for (int i = 0; i < MappedDFA.getAcceptingStatesLength(Math.max(stateCount, 0)); i++) {
+                output.writeLong(1L);
+            }
+            for (int i = 0; i < transitionCount; i++) {
+                output.writeInt(transition);
+            }
+        }
+        return path;
+    }
+
+    @Test
+    void testLoadAcceptsValidHandWrittenFile() throws IOException {
+        var loaded = MappedDFA.load(writeAutomatonFile(0, 1, 2, 0, 0, 2), new Alphabet());
+
+        Assertions.assertThat(loaded.isMatch(List.of("q", "q"))).isTrue();
+        Assertions.assertThat(loaded.isMatch(List.of("x"))).isFalse();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0,1,-1,0,0,0",
+            "0,-1,2,0,0,2",
+            "0,65536,65536,0,0,2",
+            "0,1,2,2,0,2",
+            "0,1,2,-1,0,2",
+            "1,1,2,0,0,2",
+            "-1,1,2,0,0,2",
+            "0,1,2,0,2,2",
+            "0,1,2,0,-2,2",
+            "0,1,2,0,0,1"
+    })
+    void testLoadThrowsIOExceptionForCorruptFile(int symbolColumn, int columnCount, int stateCount, int startState,
+                                                 int transition, int transitionCount) throws IOException {
+        var path = writeAutomatonFile(symbolColumn, columnCount, stateCount, startState, transition, transitionCount);
+        var alphabet = new Alphabet();
+
+        Assertions.assertThatThrownBy(() -> MappedDFA.load(path, alphabet)).isInstanceOf(IOException.class);
+        Assertions.assertThat(alphabet.size()).isZero();
+    }
+}
@@ -0,0 +1,133 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+class MatchCacheTests {
+
+    private final CompiledAutomaton automaton = new PatternParser().parse("([ptk][aeiou])+n?").compile();
+
+    private static int[] newWord(int index) {
+        return Alphabet.getDefault().intern(List.of("w" + index));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,pa", "true,kapun", "false,pn", "false,apa", "false,"})
+    void testIsMatchReturnsResultOfAutomaton(boolean result,
+                                             @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        var cache = new MatchCache(16, 1);
+        var encoded = Alphabet.getDefault().intern(symbols);
+
+        Assertions.assertThat(cache.isMatch(automaton, encoded, 0, encoded.length)).isEqualTo(result);
+        Assertions.assertThat(cache.isMatch(automaton, encoded, 0, encoded.length)).isEqualTo(result);
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void testCachedMatchingPrefixDoesNotDependOnPositionOfRange() {
+        var cache = new MatchCache(16, 1);
+        var alphabet = Alphabet.getDefault();
+
+        Assertions.assertThat(cache.getMatchingPrefix(automaton, alphabet.intern(List.of("t", "a", "p", "a", "s")), 0, 5))
+                .isEqualTo(MatchSpan.of(0, 4));
+        Assertions.assertThat(cache.getMatchingPrefix(automaton, alphabet.intern(List.of("x", "t", "a", "p", "a", "s")), 1, 6))
+                .isEqualTo(MatchSpan.of(1, 5));
+        Assertions.assertThat(cache.getMatchingPrefix(automaton, alphabet.intern(List.of("a", "s")), 0, 2))
+                .isEqualTo(MatchSpan.noMatch());
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testCachedMatchingSuffixDoesNotDependOnPositionOfRange() {
+        var cache = new MatchCache(16, 1);
+        var alphabet = Alphabet.getDefault();
+
+        Assertions.assertThat(cache.getMatchingSuffix(automaton,
+                alphabet.intern(List.of("s", "t", "a", "p", "a")), 0, 5))
+                .isEqualTo(MatchSpan.of(1, 5));
+        Assertions.assertThat(cache.getMatchingSuffix(automaton,
+                alphabet.intern(List.of("s", "t", "a", "p", "a", "x")), 0, 5))
+                .isEqualTo(MatchSpan.of(1, 5));
+        Assertions.assertThat(cache.getMatchingSuffix(automaton,
+                alphabet.intern(List.of("x", "s", "t", "a", "p", "a")), 1, 6))
+                .isEqualTo(MatchSpan.of(2, 6));
+        Assertions.assertThat(cache.getMatchingSuffix(automaton, alphabet.intern(List.of("a", "s")), 0, 2))
+                .isEqualTo(MatchSpan.noMatch());
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testResultsAreCachedPerAutomatonAndOperation() {
+        var cache = new MatchCache(16, 1);
+        var other = new PatternParser().parse("p+").compile();
+        var word = Alphabet.getDefault().intern(List.of("p", "a", "p"));
+
+        Assertions.assertThat(cache.isMatch(automaton, word, 0, 2)).isTrue();
+        Assertions.assertThat(cache.isMatch(other, word, 0, 2)).isFalse();
+        Assertions.assertThat(cache.getMatchingPrefix(automaton, word, 0, 2)).isEqualTo(MatchSpan.of(0, 2));
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(0);
+        Assertions.assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        var cache = new MatchCache(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.isMatch(automaton, newWord(i), 0, 1);
+        }
+
+        Assertions.assertThat(cache.size()).isEqualTo(64);
+        Assertions.assertThat(cache.getEvictionCount()).isEqualTo(1000 - 64);
+    }
+
+    @Test
+    void testFrequentResultsSurviveScanOfRareOnes() {
+        var cache = new MatchCache(100, 1);
+        for (int i = 0; i < 20; i++) {
+            for (int word = 0; word < 10; word++) {
+                cache.isMatch(automaton, newWord(word), 0, 1);
+            }
+        }
+        for (int word = 100; word < 10_100; word++) {
+            cache.isMatch(automaton, newWord(word), 0, 1);
+        }
+
+        var hitCount = cache.getHitCount();
+        for (int word = 0; word < 10; word++) {
+            cache.isMatch(automaton, newWord(word), 0, 1);
+        }
+        Assertions.assertThat(cache.getHitCount() - hitCount).isGreaterThanOrEqualTo(9);
+    }
+
+    @Test
+    void testCacheIsSharedByThreads() {
+        var cache = new MatchCache(256);
+        var words = IntStream.range(0, 512).mapToObj(MatchCacheTests::newWord).toArray(int[][]::new);
+
+        var mismatches = IntStream.range(0, 100_000).parallel()
+                .filter(i -> {
+                    var word = words[(int) ((long) i * i % words.length)];
+                    return cache.isMatch(automaton, word, 0, 1) != automaton.isMatch(word, 0, 1);
+                })
+                .count();
+
+        Assertions.assertThat(mismatches).isEqualTo(0);
+        Assertions.assertThat(cache.getHitCount() + cache.getMissCount()).isEqualTo(100_000);
+        Assertions.assertThat(cache.size()).isLessThanOrEqualTo(256);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    void testConstructorThrowsExceptionForInvalidSize(int maxSize) {
+        Assertions.assertThatThrownBy(() -> new MatchCache(maxSize)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,135 @@
+package net.reusingthewheel.alg.soundchange;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+class MatchMetricsTests {
+
+    private static NFA newClosureNFA() {
+        return NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testMatchingUpdatesCountersSharedByCompiledForms() {
+        var automaton = newClosureNFA();
+        automaton.isMatch(List.of("a", "a", "b"));
+        automaton.toProgram().isMatch(List.of("a", "b"));
+
+        var snapshot = automaton.getMetrics().snapshot();
+        Assertions.assertThat(snapshot.getSymbolsConsumed()).isEqualTo(5);
+        Assertions.assertThat(snapshot.getPeakStateSetSize()).isGreaterThan(1);
+        Assertions.assertThat(snapshot.getClosureExpansions()).isPositive();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testGetMatchingPrefixRecordsLongestScan() {
+        var automaton = newClosureNFA();
+        var symbols = Alphabet.getDefault().intern(List.of("a", "a", "a", "b", "c"));
+        automaton.getMatchingPrefix(symbols, 0, symbols.length);
+        automaton.getMatchingPrefix(symbols, 2, symbols.length);
+
+        Assertions.assertThat(automaton.getMetrics().snapshot().getLongestPrefixScan()).isEqualTo(4);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testDeterministicMatchingRecordsTableLookups() {
+        var automaton = newClosureNFA();
+        automaton.isMatch(List.of("a", "a", "b"));
+        automaton.isMatch(List.of("a", "c", "b"));
+
+        var snapshot = automaton.getMetrics().snapshot();
+        Assertions.assertThat(automaton.compile().isDeterministic()).isTrue();
+        Assertions.assertThat(snapshot.getSymbolsConsumed()).isEqualTo(4);
+        Assertions.assertThat(snapshot.getTableLookups()).isEqualTo(5);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testBitParallelMatchingRecordsSymbols() {
+        var automaton = newClosureNFA();
+        var compiled = CompiledAutomaton.of(automaton.toProgram(), 0);
+        compiled.isMatch(List.of("a", "a", "b"));
+
+        var snapshot = automaton.getMetrics().snapshot();
+        Assertions.assertThat(compiled.isBitParallel()).isTrue();
+        Assertions.assertThat(snapshot.getSymbolsConsumed()).isEqualTo(3);
+        Assertions.assertThat(snapshot.getTableLookups()).isEqualTo(3);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testLazyDFARecordsCacheHits() {
+        var program = newClosureNFA().toProgram();
+        var lazyDFA = LazyDFA.withStateLimit(program, 16);
+        var symbols = Alphabet.getDefault().intern(List.of("a", "a", "a", "b"));
+        lazyDFA.isMatch(symbols, 0, symbols.length);
+
+        var snapshot = program.getMetrics().snapshot();
+        Assertions.assertThat(snapshot.getCacheHits()).isEqualTo(lazyDFA.getHitCount());
+        Assertions.assertThat(snapshot.getCacheMisses()).isEqualTo(lazyDFA.getMissCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testResetClearsCounters() {
+        var automaton = newClosureNFA();
+        automaton.isMatch(List.of("a", "b"));
+        automaton.getMetrics().reset();
+
+        Assertions.assertThat(automaton.getMetrics().snapshot().getSymbolsConsumed()).isZero();
+    }
+
+    @Test
+    @DisabledIfSystemProperty(named = MatchMetrics.ENABLED_PROPERTY, matches = "true")
+    void testDisabledInstrumentationSharesCountersThatStayZero() {
+        var automaton = newClosureNFA();
+        var symbols = Alphabet.getDefault().intern(List.of("a", "a", "b"));
+        automaton.isMatch(symbols, 0, symbols.length);
+        automaton.getMatchingPrefix(symbols, 0, symbols.length);
+        automaton.toProgram().isMatch(symbols, 0, symbols.length);
+        CompiledAutomaton.of(automaton.toProgram(), 0).isMatch(symbols, 0, symbols.length);
+        LazyDFA.withStateLimit(automaton.toProgram(), 16).isMatch(symbols, 0, symbols.length);
+        automaton.newMatcher().feed("a");
+
+        var snapshot = automaton.getMetrics().snapshot();
+        Assertions.assertThat(MatchMetrics.isEnabled()).isFalse();
+        Assertions.assertThat(automaton.getMetrics()).isSameAs(NFA.newSymbolNFA("a").getMetrics());
+        Assertions.assertThat(snapshot.getSymbolsConsumed()).isZero();
+        Assertions.assertThat(snapshot.getPeakStateSetSize()).isZero();
+        Assertions.assertThat(snapshot.getClosureExpansions()).isZero();
+        Assertions.assertThat(snapshot.getLongestPrefixScan()).isZero();
+        Assertions.assertThat(snapshot.getCacheHits()).isZero();
+        Assertions.assertThat(snapshot.getCacheMisses()).isZero();
+        Assertions.assertThat(snapshot.getTableLookups()).isZero();
+    }
+
+    @Test
+    void testApplyAllEmitsFlightRecorderEvent(@TempDir Path directory) throws IOException {
+        var engine = new SoundChangeEngine(List.of(SoundChangeRule.of(NFA.newSymbolNFA("a"), List.of("e"))));
+        var file = directory.resolve("batch.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(SoundChangeBatchEvent.class);
+            recording.start();
+            engine.applyAll(List.of(List.of("a"), List.of("b", "a")), SoundChangeEngine.ExecutionMode.SEQUENTIAL);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        Assertions.assertThat(events).hasSize(1);
+        Assertions.assertThat(events.get(0).getInt("wordCount")).isEqualTo(2);
+        Assertions.assertThat(events.get(0).getString("executionMode")).isEqualTo("SEQUENTIAL");
+    }
+}
@@ -0,0 +1,48 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+class MatcherTests {
+
+    private static NFA newAutomaton() {
+        return NFA.newConcatenateNFA(NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,ab", "true,aaab", "false,a", "false,b", "false,abb", "false,"})
+    void testIsAcceptingAfterFeedingAllSymbols(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        var matcher = newAutomaton().newMatcher();
+        symbols.forEach(matcher::feed);
+        Assertions.assertThat(matcher.isAccepting()).isEqualTo(result);
+    }
+
+    @Test
+    void testIsDeadWhenNoStateCanBeReached() {
+        var matcher = newAutomaton().newMatcher();
+
+        Assertions.assertThat(matcher.feed("a")).isTrue();
+        Assertions.assertThat(matcher.isDead()).isFalse();
+        Assertions.assertThat(matcher.feed("x")).isFalse();
+        Assertions.assertThat(matcher.isDead()).isTrue();
+        Assertions.assertThat(matcher.feed("b")).isFalse();
+        Assertions.assertThat(matcher.isAccepting()).isFalse();
+    }
+
+    @Test
+    void testResetReturnsToStartState() {
+        var matcher = newAutomaton().newMatcher();
+        matcher.feed("b");
+        matcher.reset();
+
+        Assertions.assertThat(matcher.isDead()).isFalse();
+        matcher.feed("a");
+        matcher.feed("b");
+        Assertions.assertThat(matcher.isAccepting()).isTrue();
+    }
+}
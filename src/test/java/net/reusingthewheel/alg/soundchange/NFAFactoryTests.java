@@ -0,0 +1,73 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.Set;
+
+class NFAFactoryTests {
+
+    @Test
+    void testStructurallyEqualAutomataAreShared() {
+        var factory = new NFAFactory();
+        var first = factory.newConcatenateNFA(factory.newSymbolNFA("a"),
+                factory.newSymbolClassNFA(Set.of("b", "c")));
+        var second = factory.newConcatenateNFA(factory.newSymbolNFA("a"),
+                factory.newSymbolClassNFA(Set.of("c", "b")));
+
+        Assertions.assertThat(second).isSameAs(first);
+        Assertions.assertThat(second.toProgram()).isSameAs(first.toProgram());
+        Assertions.assertThat(factory.getNodeCount()).isEqualTo(3);
+        Assertions.assertThat(factory.getReuseCount()).isEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"a|b,b|a", "a|a,a", "[a],a", "a(),a", "()a,a", "(a*)*,a*", "(a?)*,a*", "(a?)?,a?", "(a+)?,a*",
+            "(a+)*,a*", "a(b|c)*,a(c|b)*",
+            "a|b|c,c|a|b", "a|b|a,b|a"})
+    void testEquivalentPatternsShareAutomaton(String pattern, String equivalentPattern) {
+        var parser = new PatternParser(Set.of(), new NFAFactory());
+        Assertions.assertThat(parser.parse(pattern)).isSameAs(parser.parse(equivalentPattern));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"ab,a+b", "ab,(ab)*", "a,a?", "a|b,ab", "[ab],a|b"})
+    void testDistinctPatternsDoNotShareAutomaton(String pattern, String otherPattern) {
+        var parser = new PatternParser(Set.of(), new NFAFactory());
+        Assertions.assertThat(parser.parse(pattern)).isNotSameAs(parser.parse(otherPattern));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,ab", "true,abab", "true,b", "true,", "false,a", "false,ba", "true,aaab", "false,c"})
+    void testSharedAutomataMatchLikeUnsharedOnes(boolean result,
+                                                 @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        var pattern = "((a|b)*(a+)?)?b|(a+b)*";
+        var shared = new PatternParser(Set.of(), new NFAFactory()).parse(pattern);
+        var unshared = new PatternParser().parse(pattern);
+
+        Assertions.assertThat(unshared.isMatch(symbols)).isEqualTo(result);
+        Assertions.assertThat(shared.isMatch(symbols)).isEqualTo(result);
+    }
+
+    @Test
+    void testAutomataBuiltElsewhereAreIdentifiedByInstance() {
+        var factory = new NFAFactory();
+        var automaton = NFA.newSymbolNFA("a");
+
+        Assertions.assertThat(factory.newKleeneClosureNFA(automaton)).isSameAs(factory.newKleeneClosureNFA(automaton));
+        Assertions.assertThat(factory.newKleeneClosureNFA(NFA.newSymbolNFA("a")))
+                .isNotSameAs(factory.newKleeneClosureNFA(automaton));
+    }
+
+    @Test
+    void testFactoryWithoutSharingBuildsNewAutomata() {
+        var factory = NFAFactory.withoutSharing();
+
+        Assertions.assertThat(factory.newSymbolNFA("a")).isNotSameAs(factory.newSymbolNFA("a"));
+        Assertions.assertThat(factory.getNodeCount()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,143 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class NFAProgramTests {
+
+    @ParameterizedTest
+    @CsvSource({"true,aaaaaaaaaa", "true,", "false,aaaaaaaaab"})
+    void testIsMatchForAmbiguousUnionNFA(boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        var automaton = NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a"));
+        for (int i = 0; i < 100; i++) {
+            automaton = NFA.newUnionNFA(automaton, NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")));
+        }
+        Assertions.assertThat(automaton.toProgram().isMatch(symbols)).isEqualTo(result);
+    }
+
+    @Test
+    void testGetStateCountReturnsNumberOfReachableStates() {
+        var automaton = NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b"));
+        Assertions.assertThat(automaton.toProgram().getStateCount()).isEqualTo(6);
+    }
+
+    @Test
+    void testSymbolsConsumedBySameTransitionsShareColumn() {
+        var program = NFATests.newSymbolClassSequenceNFA().toProgram();
+
+        Assertions.assertThat(program.getColumnCount()).isEqualTo(3);
+        Assertions.assertThat(program.getSymbolColumn(Alphabet.getDefault().getId("a")))
+                .isEqualTo(program.getSymbolColumn(Alphabet.getDefault().getId("b")));
+        Assertions.assertThat(program.getSymbolColumn(Alphabet.getDefault().getId("a")))
+                .isNotEqualTo(program.getSymbolColumn(Alphabet.getDefault().getId("c")));
+    }
+
+    @Test
+    void testIsMatchForLongWord() {
+        var automaton = NFA.newKleeneClosureNFA(NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")));
+        var symbols = Collections.nCopies(100_000, "a");
+        Assertions.assertThat(automaton.toProgram().isMatch(symbols)).isTrue();
+    }
+
+    @Test
+    void testReversedProgramIsCached() {
+        var program = NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")).toProgram();
+
+        Assertions.assertThat(program.reverse()).isSameAs(program.reverse());
+        Assertions.assertThat(program.reverse().isMatch(List.of("b", "a"))).isTrue();
+        Assertions.assertThat(program.reverse().isMatch(List.of("a", "b"))).isFalse();
+    }
+
+    @Test
+    void testGetMatchingSuffixForLongWord() {
+        var automaton = NFA.newConcatenateNFA(NFA.newSymbolNFA("b"), NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")));
+        var symbols = new ArrayList<String>(Collections.nCopies(100_000, "a"));
+        symbols.set(10, "b");
+        var encoded = automaton.getAlphabet().encode(symbols);
+
+        Assertions.assertThat(automaton.toProgram().getMatchingSuffix(encoded, 0, encoded.length))
+                .isEqualTo(MatchSpan.of(10, encoded.length));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ab|abcd|bcde,xabcde,'1,5'",
+            "ab|abcd|bcde,xbcdeab,'1,5,5,7'",
+            "a*,aab,'0,2,2,2,3,3'",
+            "a[bc]?,abacaa,'0,2,2,4,4,5,5,6'",
+            "b,aaa,''"
+    })
+    void testFindAllReturnsLeftmostLongestSpans(String pattern,
+                                                @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols,
+                                                String offsets) {
+        var program = new PatternParser().parse(pattern).toProgram();
+        var encoded = program.getAlphabet().intern(symbols);
+        var expected = new ArrayList<MatchSpan>();
+        var bounds = offsets.isEmpty() ? new String[0] : offsets.split(",");
+        for (int i = 0; i < bounds.length; i += 2) {
+            expected.add(MatchSpan.of(Integer.parseInt(bounds[i]), Integer.parseInt(bounds[i + 1])));
+        }
+
+        Assertions.assertThat(program.findAll(encoded, 0, encoded.length)).isEqualTo(expected);
+    }
+
+    @Test
+    void testFindAllWithinRange() {
+        var program = new PatternParser().parse("ab*").toProgram();
+        var encoded = program.getAlphabet().intern(List.of("a", "b", "b", "a", "b", "a"));
+
+        Assertions.assertThat(program.findAll(encoded, 1, 5)).containsExactly(MatchSpan.of(3, 5));
+        Assertions.assertThat(program.findAll(encoded, 0, 2)).containsExactly(MatchSpan.of(0, 2));
+    }
+
+    @Test
+    void testReplaceAll() {
+        var program = new PatternParser().parse("a[bc]?").toProgram();
+        var alphabet = program.getAlphabet();
+        var encoded = alphabet.intern(List.of("x", "a", "b", "a", "y", "a"));
+
+        var actual = program.replaceAll(encoded, 1, encoded.length, alphabet.intern(List.of("o", "o")));
+
+        Assertions.assertThat(alphabet.decode(actual, 0, actual.length))
+                .containsExactly("o", "o", "o", "o", "y", "o", "o");
+    }
+
+    @Test
+    void testFindAllForLongWord() {
+        var automaton = NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"));
+        var symbols = new ArrayList<String>(Collections.nCopies(100_000, "a"));
+        for (int i = 9; i < symbols.size(); i += 10) {
+            symbols.set(i, "b");
+        }
+        var encoded = automaton.getAlphabet().encode(symbols);
+
+        var spans = automaton.toProgram().findAll(encoded, 0, encoded.length);
+
+        Assertions.assertThat(spans).hasSize(10_000);
+        Assertions.assertThat(spans.get(9_999)).isEqualTo(MatchSpan.of(99_990, 100_000));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"16", "256", "4096"})
+    void testFindAllConsumesEachSymbolAConstantNumberOfTimes(int length) {
+        var program = new PatternParser().parse("a*b|a").toProgram();
+        var encoded = program.getAlphabet().intern(Collections.nCopies(length, "a"));
+        var finder = program.newSpanFinder();
+        finder.reset(encoded, 0, length);
+
+        var matchCount = 0;
+        for (int position = 0; finder.find(position) != NFAProgram.NO_MATCH; position = finder.getEnd()) {
+            matchCount++;
+        }
+
+        Assertions.assertThat(matchCount).isEqualTo(length);
+        Assertions.assertThat(finder.getStepCount()).isLessThanOrEqualTo(3L * length);
+    }
+}
@@ -1,6 +1,7 @@
 package net.reusingthewheel.alg.soundchange;
 
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.converter.ArgumentConversionException;
@@ -12,8 +13,13 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 class NFATests {
@@ -64,6 +70,19 @@ class NFATests {
         testAutomaton(automaton, symbols, result);
     }
 
+    @ParameterizedTest
+    @CsvSource({"true,a", "true,b", "true,cd", "false,c", "false,ab", "false,"})
+    void testIsMatchForUnionOfManyNFA(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols) {
+        var automaton = NFA.newUnionNFA(List.of(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b"),
+                NFA.newConcatenateNFA(NFA.newSymbolNFA("c"), NFA.newSymbolNFA("d"))));
+        testAutomaton(automaton, symbols, result);
+    }
+
+    @Test
+    void testNewUnionNFAThrowsExceptionForNoAutomata() {
+        Assertions.assertThatThrownBy(() -> NFA.newUnionNFA(List.of())).isInstanceOf(IllegalArgumentException.class);
+    }
+
     @ParameterizedTest
     @CsvSource({"true,ab", "false,a", "false,b", "false,ba", "false,abx", "false,xab"})
     void testIsMatchForConcatenateNFA(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols) {
@@ -92,6 +111,99 @@ class NFATests {
         testAutomaton(automaton, symbols, result);
     }
 
+    @ParameterizedTest
+    @CsvSource({"true,a", "true,e", "false,", "false,ae", "false,b", "false,xa"})
+    void testIsMatchForSymbolClassNFA(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols) {
+        var automaton = NFA.newSymbolClassNFA(Set.of("a", "e", "i"));
+        testAutomaton(automaton, symbols, result);
+    }
+
+    static NFA newNestedNFA() {
+        return NFA.newOneOrMoreNFA(
+                NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"))
+        );
+    }
+
+    static NFA newSymbolClassSequenceNFA() {
+        return NFA.newConcatenateNFA(
+                NFA.newSymbolClassNFA(Set.of("a", "b", "c")),
+                NFA.newUnionNFA(NFA.newSymbolClassNFA(Set.of("a", "b")), NFA.newSymbolNFA("x"))
+        );
+    }
+
+    static Stream<Arguments> getArgsForNestedNFA() {
+        return Stream.of(
+                Arguments.of(true, List.of("a", "b")),
+                Arguments.of(true, List.of("a", "b", "a", "b")),
+                Arguments.of(true, List.of("a", "a", "b")),
+                Arguments.of(true, List.of("b")),
+                Arguments.of(false, List.of()),
+                Arguments.of(false, List.of("a", "b", "a")),
+                Arguments.of(false, List.of("b", "a")),
+                Arguments.of(false, List.of("a", "b", "x")),
+                Arguments.of(false, List.of("x"))
+        );
+    }
+
+    static Stream<Arguments> getArgsForSymbolClassSequenceNFA() {
+        return Stream.of(
+                Arguments.of(true, List.of("a", "b")),
+                Arguments.of(true, List.of("c", "x")),
+                Arguments.of(false, List.of("x", "a")),
+                Arguments.of(false, List.of("c")),
+                Arguments.of(false, List.of("a", "b", "x"))
+        );
+    }
+
+    /**
+     * Get the isMatch methods of each in-memory form an automaton can be compiled to, by the name of the form.
+     */
+    private static Map<String, Predicate<List<String>>> getMatchingEngines(NFA automaton) {
+        var program = automaton.toProgram();
+        var engines = new LinkedHashMap<String, Predicate<List<String>>>();
+        engines.put("NFA", automaton::isMatch);
+        engines.put("NFAProgram", program::isMatch);
+        engines.put("DFA", automaton.toDFA()::isMatch);
+        engines.put("minimized DFA", automaton.toDFA().minimize()::isMatch);
+        engines.put("deterministic CompiledAutomaton", CompiledAutomaton.of(program)::isMatch);
+        engines.put("non-deterministic CompiledAutomaton", CompiledAutomaton.of(program, 0)::isMatch);
+        engines.put("BitParallelNFA", BitParallelNFA.fromProgram(program)::isMatch);
+        return engines;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getArgsForNestedNFA")
+    void testIsMatchForNestedNFAInEachEngine(boolean result, List<String> symbols) {
+        getMatchingEngines(newNestedNFA()).forEach((engine, isMatch) ->
+                Assertions.assertThat(isMatch.test(symbols)).as(engine).isEqualTo(result));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getArgsForSymbolClassSequenceNFA")
+    void testIsMatchForSymbolClassSequenceNFAInEachEngine(boolean result, List<String> symbols) {
+        getMatchingEngines(newSymbolClassSequenceNFA()).forEach((engine, isMatch) ->
+                Assertions.assertThat(isMatch.test(symbols)).as(engine).isEqualTo(result));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"abax,0,4,true,2", "aabb,0,4,true,4", "xab,1,3,true,3", "ax,0,2,false,0"})
+    void testGetMatchingPrefixForNestedNFAInEachEngine(@ConvertWith(SymbolSequenceConverter.class) List<String> symbols,
+                                                      int from, int to, boolean matchDetected, int expectedEnd) {
+        var program = newNestedNFA().toProgram();
+        var encoded = Alphabet.getDefault().intern(symbols);
+        var expected = matchDetected ? MatchSpan.of(from, expectedEnd) : MatchSpan.noMatch();
+
+        Assertions.assertThat(program.getMatchingPrefix(encoded, from, to)).as("NFAProgram").isEqualTo(expected);
+        Assertions.assertThat(DFA.fromProgram(program).getMatchingPrefix(encoded, from, to)).as("DFA")
+                .isEqualTo(expected);
+        Assertions.assertThat(CompiledAutomaton.of(program).getMatchingPrefix(encoded, from, to))
+                .as("deterministic CompiledAutomaton").isEqualTo(expected);
+        Assertions.assertThat(CompiledAutomaton.of(program, 0).getMatchingPrefix(encoded, from, to))
+                .as("non-deterministic CompiledAutomaton").isEqualTo(expected);
+        Assertions.assertThat(BitParallelNFA.fromProgram(program).getMatchingPrefix(encoded, from, to))
+                .as("BitParallelNFA").isEqualTo(expected);
+    }
+
     private static Stream<Arguments> getArgsForTestGetMatchingPrefixThrowsIllegalArgumentExceptionForEmptySymbolSequence() {
         return Stream.of(
                 Arguments.of(NFA.newEmptySymbolNFA()),
@@ -245,6 +357,110 @@ class NFATests {
         Assertions.assertThat(actual).isEqualToComparingFieldByField(expected);
     }
 
+    @ParameterizedTest
+    @CsvSource({"true,xaby,1,3", "false,xaby,0,3", "false,xaby,1,2", "true,ab,0,2", "false,ab,0,0"})
+    void testIsMatchForEncodedSymbolRange(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols,
+                                          int from, int to) {
+        var automaton = NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b"));
+        var encoded = automaton.getAlphabet().encode(symbols);
+        Assertions.assertThat(automaton.isMatch(encoded, from, to)).isEqualTo(result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"xaaby,1,5,true,3", "xaaby,1,2,true,2", "xaaby,0,5,false,0", "aaa,0,3,true,3", "q,0,1,false,0"})
+    void testGetMatchingPrefixForEncodedSymbolRange(@ConvertWith(SymbolSequenceConverter.class) List<String> symbols,
+                                                    int from, int to, boolean matchDetected, int expectedEnd) {
+        var automaton = NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a"));
+        var encoded = automaton.getAlphabet().encode(symbols);
+        var expected = matchDetected ? MatchSpan.of(from, expectedEnd) : MatchSpan.noMatch();
+        Assertions.assertThat(automaton.getMatchingPrefix(encoded, from, to)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,ba", "true,b", "true,baa", "false,bab", "false,ab", "false,a", "false,"})
+    void testIsMatchForReversedNFA(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols) {
+        var automaton = NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"));
+        testAutomaton(automaton.reverse(), symbols, result);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"xaaby,0,3,true,1", "xaaby,0,2,true,1", "xaaby,0,5,false,0", "aaa,0,3,true,0", "aaa,1,3,true,1"})
+    void testGetMatchingSuffixForEncodedSymbolRange(@ConvertWith(SymbolSequenceConverter.class) List<String> symbols,
+                                                    int from, int to, boolean matchDetected, int expectedStart) {
+        var automaton = NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a"));
+        var encoded = automaton.getAlphabet().encode(symbols);
+        var expected = matchDetected ? MatchSpan.of(expectedStart, to) : MatchSpan.noMatch();
+        Assertions.assertThat(automaton.getMatchingSuffix(encoded, from, to)).isEqualTo(expected);
+    }
+
+    @Test
+    void testGetMatchingSuffixReturnsLongestSuffix() {
+        var automaton = NFA.newConcatenateNFA(NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")), NFA.newSymbolNFA("b"));
+        var actual = automaton.getMatchingSuffix(List.of("b", "a", "a", "b"));
+
+        Assertions.assertThat(actual.isMatchDetected()).isTrue();
+        Assertions.assertThat(actual.getMatchedSymbols()).containsExactly("a", "a", "b");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"abaab,xbxb", "ba,bx", "bbb,bbb", "aaba,xbx", ","})
+    void testReplaceAll(@ConvertWith(SymbolSequenceConverter.class) List<String> symbols,
+                        @ConvertWith(SymbolSequenceConverter.class) List<String> expected) {
+        var automaton = NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a"));
+        Assertions.assertThat(automaton.replaceAll(symbols, List.of("x"))).isEqualTo(expected);
+    }
+
+    @Test
+    void testFindAllReturnsNonOverlappingSpans() {
+        var automaton = NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newZeroOrOneNFA(NFA.newSymbolNFA("a")));
+
+        Assertions.assertThat(automaton.findAll(List.of("a", "a", "a", "b", "a")))
+                .containsExactly(MatchSpan.of(0, 2), MatchSpan.of(2, 3), MatchSpan.of(4, 5));
+    }
+
+    @Test
+    void testGetMatchingPrefixForClosureOfNullableNFA() {
+        var automaton = NFA.newKleeneClosureNFA(NFA.newZeroOrOneNFA(NFA.newSymbolNFA("a")));
+        var symbols = Collections.nCopies(100_000, "a");
+        var actual = automaton.getMatchingPrefix(symbols);
+        Assertions.assertThat(actual.getMatchedSymbols()).hasSize(symbols.size());
+    }
+
+    @Test
+    void testCombinatorsDoNotModifyOperands() {
+        var symbol = NFA.newSymbolNFA("a");
+        var pair = NFA.newConcatenateNFA(symbol, symbol);
+        var closure = NFA.newKleeneClosureNFA(pair);
+        var choice = NFA.newUnionNFA(symbol, closure);
+
+        Assertions.assertThat(symbol.isMatch(List.of("a"))).isTrue();
+        Assertions.assertThat(symbol.isMatch(List.of("a", "a"))).isFalse();
+        Assertions.assertThat(pair.isMatch(List.of("a", "a"))).isTrue();
+        Assertions.assertThat(pair.isMatch(List.of())).isFalse();
+        Assertions.assertThat(choice.isMatch(List.of("a", "a", "a"))).isFalse();
+        Assertions.assertThat(choice.isMatch(List.of("a", "a", "a", "a"))).isTrue();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,ab", "true,abab", "false,", "false,aba"})
+    void testOneOrMoreNFADoesNotAliasOperand(boolean result, @ConvertWith(SymbolSequenceConverter.class) List<String> symbols) {
+        var pair = NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b"));
+        var oneOrMore = NFA.newOneOrMoreNFA(pair);
+        var followed = NFA.newConcatenateNFA(oneOrMore, NFA.newEmptySymbolNFA());
+
+        Assertions.assertThat(followed.isMatch(symbols)).isEqualTo(result);
+        Assertions.assertThat(pair.isMatch(List.of("a", "b", "a", "b"))).isFalse();
+    }
+
+    @Test
+    void testCompiledFormsAreCached() {
+        var automaton = NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a"));
+
+        Assertions.assertThat(automaton.toProgram()).isSameAs(automaton.toProgram());
+        Assertions.assertThat(automaton.compile()).isSameAs(automaton.compile());
+        Assertions.assertThat(automaton.compile().getProgram()).isSameAs(automaton.toProgram());
+    }
+
     private static MatchResult prepareMatchResult(boolean matchDetected, String... matchedSymbols) {
         var result = new MatchResult();
         result.setMatchDetected(matchDetected);
@@ -0,0 +1,42 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+class PatternCacheTests {
+
+    @Test
+    void testCompileReturnsCachedInstance() {
+        var cache = new PatternCache(new PatternParser(), 4);
+        var compiled = cache.compile("a(b|c)*");
+
+        Assertions.assertThat(cache.compile("a(b|c)*")).isSameAs(compiled);
+        Assertions.assertThat(compiled.isMatch(List.of("a", "c", "b"))).isTrue();
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testCompileEvictsLeastRecentlyUsedPattern() {
+        var cache = new PatternCache(new PatternParser(), 2);
+        var first = cache.compile("a");
+        var second = cache.compile("b");
+        cache.compile("a");
+        cache.compile("c");
+
+        Assertions.assertThat(cache.size()).isEqualTo(2);
+        Assertions.assertThat(cache.compile("a")).isSameAs(first);
+        Assertions.assertThat(cache.compile("b")).isNotSameAs(second);
+    }
+
+    @Test
+    void testStructurallyEqualPatternsShareCompiledAutomaton() {
+        var cache = new PatternCache(new PatternParser(Set.of(), new NFAFactory()), 4);
+
+        Assertions.assertThat(cache.compile("[aeiou] (n|m)")).isSameAs(cache.compile("[uoiea](m|n)"));
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+}
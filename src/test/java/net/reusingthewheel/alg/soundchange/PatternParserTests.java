@@ -0,0 +1,79 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+class PatternParserTests {
+
+    private final PatternParser parser = new PatternParser();
+
+    @ParameterizedTest
+    @CsvSource({
+            "a, true, a",
+            "a, false, b",
+            "ab, true, ab",
+            "a b, true, ab",
+            "a|b, true, b",
+            "a|b, false, ab",
+            "a*, true, ''",
+            "a*, true, aaa",
+            "a+, false, ''",
+            "a+, true, aa",
+            "a?, true, ''",
+            "a?, false, aa",
+            "(ab)+c, true, ababc",
+            "(ab)+c, false, abac",
+            "(a|)b, true, b",
+            "(a|)b, true, ab",
+            "#a, true, #a",
+            "'\\*a', true, *a",
+            "'', true, ''",
+            "(a|b)*c?, true, abba",
+            "[aei]b, true, eb",
+            "[aei]b, false, ob",
+            "[a e i]+, true, iea",
+            "[\\]]a, true, ]a",
+    })
+    void testParse(String pattern, boolean result, @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols) {
+        Assertions.assertThat(parser.parse(pattern).isMatch(symbols)).isEqualTo(result);
+    }
+
+    @Test
+    void testParseRecognizesLongestPhoneme() {
+        var phonemeParser = new PatternParser(Set.of("t", "th", "tsh"));
+        var automaton = phonemeParser.parse("th|tsh a");
+
+        Assertions.assertThat(automaton.isMatch(List.of("th"))).isTrue();
+        Assertions.assertThat(automaton.isMatch(List.of("tsh", "a"))).isTrue();
+        Assertions.assertThat(automaton.isMatch(List.of("t", "h"))).isFalse();
+    }
+
+    @Test
+    void testParseJoinsAlternativesWithSingleUnion() {
+        var pattern = String.join("|", Collections.nCopies(1000, "a"));
+
+        // two states of each alternative and the start and end states of the union
+        Assertions.assertThat(parser.parse(pattern).toProgram().getStateCount()).isEqualTo(2002);
+    }
+
+    @Test
+    void testSplitSymbols() {
+        var phonemeParser = new PatternParser(Set.of("th", "ng"));
+
+        Assertions.assertThat(phonemeParser.splitSymbols("thangt")).containsExactly("th", "a", "ng", "t");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"(a", "a)", "*a", "a|(", "a\\", "()+)", "[ab"})
+    void testParseThrowsExceptionForInvalidPattern(String pattern) {
+        Assertions.assertThatThrownBy(() -> parser.parse(pattern)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
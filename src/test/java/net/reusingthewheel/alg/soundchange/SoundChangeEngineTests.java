@@ -0,0 +1,179 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class SoundChangeEngineTests {
+
+    private static NFA newVowelNFA() {
+        return NFA.newUnionNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("e"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"bab,beb", "aa,ee", "b,b", ","})
+    void testApplyUnconditionalRule(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+                                    @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var engine = new SoundChangeEngine(List.of(SoundChangeRule.of(NFA.newSymbolNFA("a"), List.of("e"))));
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"akak,agak", "ekekka,egekka", "kak,kak"})
+    void testApplyRuleBetweenVowels(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+                                    @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newVowelNFA(), newVowelNFA());
+        var engine = new SoundChangeEngine(List.of(rule));
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"dad,dat", "da,da", "d,t"})
+    void testApplyRuleAtWordBoundary(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+                                     @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("d"), List.of("t"), null,
+                NFA.newSymbolNFA(SoundChangeRule.WORD_BOUNDARY));
+        var engine = new SoundChangeEngine(List.of(rule));
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"as,ase", "sa,sa", "ass,asse"})
+    void testApplyInsertionRule(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+                                @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var rule = SoundChangeRule.of(NFA.newEmptySymbolNFA(), List.of("e"), NFA.newSymbolNFA("s"),
+                NFA.newSymbolNFA(SoundChangeRule.WORD_BOUNDARY));
+        var engine = new SoundChangeEngine(List.of(rule));
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"sta,ste", "tsta,tste", "ta,ta", "ssta,ssta"})
+    void testApplyRuleAfterWordInitialCluster(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+                                              @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var leftContext = NFA.newConcatenateNFA(
+                NFA.newSymbolNFA(SoundChangeRule.WORD_BOUNDARY),
+                NFA.newConcatenateNFA(NFA.newZeroOrOneNFA(NFA.newSymbolNFA("t")),
+                        NFA.newConcatenateNFA(NFA.newSymbolNFA("s"), NFA.newSymbolNFA("t")))
+        );
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("a"), List.of("e"), leftContext, null);
+        var engine = new SoundChangeEngine(List.of(rule));
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+    }
+
+    @Test
+    void testApplyCopiesUnknownSymbolsWithoutInterningThem() {
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newVowelNFA(), newVowelNFA());
+        var engine = new SoundChangeEngine(List.of(rule));
+        var alphabetSize = Alphabet.getDefault().size();
+
+        Assertions.assertThat(engine.apply(List.of("a", "k", "a", "unknown-1", "k", "unknown-2", "a")))
+                .containsExactly("a", "g", "a", "unknown-1", "k", "unknown-2", "a");
+        Assertions.assertThat(Alphabet.getDefault().size()).isEqualTo(alphabetSize);
+    }
+
+    private static NFA newNondeterministicNFA() {
+        // a DFA has to remember the last 13 symbols, so it would need more than the default number of states
+        return new PatternParser().parse("[ab]*a" + "[ab]".repeat(12));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "aaaaaaaaaaaaakaaaaaaaaaaaaa,aaaaaaaaaaaaagaaaaaaaaaaaaa",
+            "aaaaaaaaaaaaakbbbbbbbbbbbbb,aaaaaaaaaaaaakbbbbbbbbbbbbb",
+            "bbbbbbbbbbbbbkaaaaaaaaaaaaa,bbbbbbbbbbbbbkaaaaaaaaaaaaa"
+    })
+    void testApplyChecksNondeterministicContextsThroughCache(
+            @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> word,
+            @ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> expected) {
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newNondeterministicNFA(),
+                newNondeterministicNFA());
+        var cache = new MatchCache(16);
+        var engine = new SoundChangeEngine(List.of(rule), cache);
+
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+        Assertions.assertThat(engine.apply(word)).isEqualTo(expected);
+        Assertions.assertThat(new SoundChangeEngine(List.of(rule)).apply(word)).isEqualTo(expected);
+        Assertions.assertThat(cache.getMissCount()).isPositive();
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(cache.getMissCount());
+    }
+
+    @Test
+    void testRulesSharingContextShareCachedResults() {
+        var context = newNondeterministicNFA();
+        var cache = new MatchCache(16);
+        var engine = new SoundChangeEngine(List.of(
+                SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), null, context),
+                SoundChangeRule.of(NFA.newSymbolNFA("g"), List.of("d"), null, context)
+        ), cache);
+        var word = new ArrayList<String>(List.of("k"));
+        word.addAll(Collections.nCopies(13, "a"));
+
+        Assertions.assertThat(engine.apply(word).get(0)).isEqualTo("d");
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testApplyDoesNotUseCacheForDeterministicContexts() {
+        var rule = SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newVowelNFA(), newVowelNFA());
+        var cache = new MatchCache(16);
+        var engine = new SoundChangeEngine(List.of(rule), cache);
+
+        Assertions.assertThat(engine.apply(List.of("a", "k", "a"))).containsExactly("a", "g", "a");
+        Assertions.assertThat(cache.getHitCount() + cache.getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    void testApplyRulesInOrder() {
+        var engine = new SoundChangeEngine(List.of(
+                SoundChangeRule.of(NFA.newSymbolNFA("a"), List.of("e")),
+                SoundChangeRule.of(NFA.newSymbolNFA("e"), List.of("i"))
+        ));
+        Assertions.assertThat(engine.apply(List.of("a", "e", "o"))).containsExactly("i", "i", "o");
+    }
+
+    @Test
+    void testApplyAllGivesTheSameResultInParallelAndSequentialMode() {
+        var engine = new SoundChangeEngine(List.of(
+                SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newVowelNFA(), newVowelNFA()),
+                SoundChangeRule.of(NFA.newOneOrMoreNFA(NFA.newSymbolNFA("a")), List.of("o"))
+        ));
+        var lexicon = new ArrayList<List<String>>();
+        for (int i = 0; i < 10_000; i++) {
+            lexicon.add(Arrays.asList(Integer.toString(i, 3).replace('0', 'a').replace('1', 'k').replace('2', 'e').split("")));
+        }
+
+        var sequential = engine.applyAll(lexicon, SoundChangeEngine.ExecutionMode.SEQUENTIAL);
+        var parallel = engine.applyAll(lexicon, SoundChangeEngine.ExecutionMode.PARALLEL);
+
+        Assertions.assertThat(parallel.getWords()).isEqualTo(sequential.getWords());
+        Assertions.assertThat(sequential.getWords()).hasSize(lexicon.size());
+        Assertions.assertThat(sequential.getWordsPerSecond()).isGreaterThan(0.0);
+    }
+
+    @Test
+    void testApplyAllToEncodedWords() {
+        var engine = new SoundChangeEngine(List.of(
+                SoundChangeRule.of(NFA.newSymbolNFA("k"), List.of("g"), newVowelNFA(), newVowelNFA())
+        ));
+        var alphabet = Alphabet.getDefault();
+        var words = new int[][]{alphabet.intern(List.of("k")), alphabet.intern(List.of("a", "k", "a")),
+                alphabet.intern(List.of("e", "k", "k"))};
+
+        for (var mode : SoundChangeEngine.ExecutionMode.values()) {
+            var result = engine.applyAll(words, 1, 3, mode);
+
+            Assertions.assertThat(result).hasSize(2);
+            Assertions.assertThat(alphabet.decode(result[0], 0, result[0].length)).containsExactly("a", "g", "a");
+            Assertions.assertThat(alphabet.decode(result[1], 0, result[1].length)).containsExactly("e", "k", "k");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+class SoundChangeRuleParserTests {
+
+    private final PatternCache patternCache = new PatternCache(new PatternParser(Set.of("th")), 16);
+    private final SoundChangeRuleParser parser = new SoundChangeRuleParser(patternCache);
+
+    private String apply(String rule, String word) {
+        var engine = new SoundChangeEngine(List.of(parser.parseRule(rule)));
+        return String.join("", engine.apply(patternCache.getParser().splitSymbols(word)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "a > e, bab, beb",
+            "a >, bab, bb",
+            "> e / s _ #, as, ase",
+            "k > g / [ae] _ [ae], akak, agak",
+            "k > g / a _, akka, agka",
+            "k > g / _ a, akka, akga",
+            "th > t / # _, thath, tath",
+            "a(b|c)* > x, abcbd, xd",
+            "'\\> > \\/', a>b, a/b",
+    })
+    void testParseRule(String rule, String word, String expected) {
+        Assertions.assertThat(apply(rule, word)).isEqualTo(expected);
+    }
+
+    @Test
+    void testParseRuleSplitsReplacementIntoPhonemes() {
+        var engine = new SoundChangeEngine(List.of(parser.parseRule("t > th a")));
+
+        Assertions.assertThat(engine.apply(List.of("t"))).containsExactly("th", "a");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a e", "a > b > c", "a > b / c", "a > b / c _ d _ e", "a > b / c _ d / e", "(a > b"})
+    void testParseRuleThrowsExceptionForInvalidRule(String rule) {
+        Assertions.assertThatThrownBy(() -> parser.parseRule(rule)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testParseRulesSkipsBlankLinesAndComments() throws IOException {
+        var rules = parser.parseRules(new BufferedReader(new StringReader("; a comment\n\na > e\n  \ne > i\n")));
+        var engine = new SoundChangeEngine(rules);
+
+        Assertions.assertThat(rules).hasSize(2);
+        Assertions.assertThat(engine.apply(List.of("a", "e"))).containsExactly("i", "i");
+    }
+
+    @Test
+    void testParseRulesSharesCompiledPatterns() throws IOException {
+        parser.parseRules(new BufferedReader(new StringReader("a > e / [ptk] _ [ptk]\no > u / [ptk] _ [ptk]\n")));
+
+        Assertions.assertThat(patternCache.getHitCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testParseRulesReportsLineOfInvalidRule() {
+        var reader = new BufferedReader(new StringReader("a > e\n\nb e\n"));
+
+        Assertions.assertThatThrownBy(() -> parser.parseRules(reader))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 3");
+    }
+}
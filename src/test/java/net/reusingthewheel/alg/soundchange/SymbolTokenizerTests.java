@@ -0,0 +1,38 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Set;
+
+class SymbolTokenizerTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"thangt", "tsha", "th", "t", "", "ngng", "xyz"})
+    void testTokenizeSplitsSymbolsLikePatternParser(String word) {
+        var phonemes = Set.of("th", "ng", "tsh");
+        var tokenizer = new SymbolTokenizer(Alphabet.getDefault(), phonemes);
+        var expected = Alphabet.getDefault().intern(new PatternParser(phonemes).splitSymbols(word));
+
+        Assertions.assertThat(tokenizer.tokenize(word)).isEqualTo(expected);
+    }
+
+    @Test
+    void testTokenizeRange() {
+        var tokenizer = new SymbolTokenizer(Alphabet.getDefault(), Set.of("th"));
+        var expected = Alphabet.getDefault().intern(java.util.List.of("th", "a"));
+
+        Assertions.assertThat(tokenizer.tokenize("xtha\n".toCharArray(), 1, 4)).isEqualTo(expected);
+    }
+
+    @Test
+    void testTokenizeKeepsSurrogatePairsTogether() {
+        var tokenizer = new SymbolTokenizer(Alphabet.getDefault(), Set.of());
+        var word = "a\uD83D\uDE00";
+
+        Assertions.assertThat(tokenizer.tokenize(word))
+                .containsExactly(Alphabet.getDefault().intern("a"), Alphabet.getDefault().intern("\uD83D\uDE00"));
+    }
+}
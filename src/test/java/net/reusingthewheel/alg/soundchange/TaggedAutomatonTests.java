@@ -0,0 +1,50 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.converter.ConvertWith;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+class TaggedAutomatonTests {
+
+    private static TaggedAutomaton newAutomaton() {
+        return TaggedAutomaton.of(List.of(
+                NFA.newSymbolNFA("a"),
+                NFA.newKleeneClosureNFA(NFA.newSymbolNFA("a")),
+                NFA.newConcatenateNFA(NFA.newSymbolNFA("a"), NFA.newSymbolNFA("b")),
+                NFA.newSymbolNFA("b")
+        ));
+    }
+
+    private static BitSet toBitSet(String indices) {
+        var result = new BitSet();
+        if (indices != null) {
+            Arrays.stream(indices.split(" ")).mapToInt(Integer::parseInt).forEach(result::set);
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"a,0 1", "aa,1", ",1", "ab,2", "b,3", "x,", "abx,"})
+    void testGetMatchingAutomata(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols,
+                                 String expected) {
+        Assertions.assertThat(newAutomaton().getMatchingAutomata(symbols)).isEqualTo(toBitSet(expected));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"abx,1,1,2,-1", "aax,1,2,-1,-1", "bx,-1,0,-1,1", "x,-1,0,-1,-1"})
+    void testGetMatchingPrefixes(@ConvertWith(NFATests.SymbolSequenceConverter.class) List<String> symbols,
+                                 int first, int second, int third, int fourth) {
+        var automaton = newAutomaton();
+        var encoded = automaton.getAlphabet().encode(symbols);
+        var expected = Arrays.stream(new int[]{first, second, third, fourth})
+                .mapToObj(end -> end < 0 ? MatchSpan.noMatch() : MatchSpan.of(0, end))
+                .toArray(MatchSpan[]::new);
+
+        Assertions.assertThat(automaton.getMatchingPrefixes(encoded, 0, encoded.length)).containsExactly(expected);
+    }
+}
@@ -0,0 +1,142 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+class WordGeneratorTests {
+
+    private final PatternParser parser = new PatternParser();
+
+    private WordGenerator newGenerator(String pattern, int maxLength) {
+        return WordGenerator.of(parser.parse(pattern).compile(), maxLength);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,1", "1,0", "2,4", "3,0", "4,16"})
+    void testCountWords(int length, long expected) {
+        var generator = newGenerator("([ab][ab])*", 4);
+
+        Assertions.assertThat(generator.countWords(length)).isEqualTo(BigInteger.valueOf(expected));
+    }
+
+    @Test
+    void testCountWordsOfAnyLength() {
+        Assertions.assertThat(newGenerator("([ab][ab])*", 4).countWords()).isEqualTo(BigInteger.valueOf(21));
+        Assertions.assertThat(newGenerator("[abc]*", 40).countWords(40)).isEqualTo(BigInteger.valueOf(3).pow(40));
+    }
+
+    @Test
+    void testEnumerateInOrderOfLengthAndSymbols() {
+        var words = newGenerator("b|a(b|a)?|ca*", 3).enumerate()
+                .map(word -> String.join("", word))
+                .collect(Collectors.toList());
+
+        Assertions.assertThat(words).containsExactly("a", "b", "c", "aa", "ab", "ca", "caa");
+    }
+
+    @Test
+    void testEnumerateIsLazy() {
+        var words = newGenerator("[ab]*", 1000).enumerate().limit(4).collect(Collectors.toList());
+
+        Assertions.assertThat(words).containsExactly(List.of(), List.of("a"), List.of("b"), List.of("a", "a"));
+    }
+
+    @Test
+    void testSampleGivesAcceptedWordsWithEqualProbability() {
+        var automaton = parser.parse("a(b|c)?|d");
+        var generator = WordGenerator.of(automaton.compile(), 3);
+        var random = new SplittableRandom(42);
+        var counts = new HashMap<List<String>, Integer>();
+        for (int i = 0; i < 40_000; i++) {
+            counts.merge(generator.sample(random), 1, Integer::sum);
+        }
+
+        Assertions.assertThat(counts).hasSize(4);
+        for (var entry : counts.entrySet()) {
+            Assertions.assertThat(automaton.isMatch(entry.getKey())).isTrue();
+            Assertions.assertThat(entry.getValue()).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void testSampleWithGivenLength() {
+        var generator = newGenerator("a*b*", 10);
+        var random = new SplittableRandom(42);
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(generator.sample(random, 7)).hasSize(7);
+        }
+        Assertions.assertThatThrownBy(() -> newGenerator("aa", 3).sample(random, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSampleThrowsExceptionForEmptyWordIfStartStateIsNotAccepting() {
+        var generator = WordGenerator.of(NFA.newSymbolNFA("a").compile(), 3);
+        var random = new SplittableRandom(42);
+
+        Assertions.assertThat(generator.countWords(0)).isEqualTo(BigInteger.ZERO);
+        Assertions.assertThatThrownBy(() -> generator.sampleSymbols(random, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> generator.sample(random, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSampleWithSymbolWeights() {
+        var generator = WordGenerator.of(parser.parse("[abc]").compile(), 1, Map.of("a", 2.0, "c", 0.0));
+        var random = new SplittableRandom(42);
+        var counts = new HashMap<List<String>, Integer>();
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(generator.sample(random), 1, Integer::sum);
+        }
+
+        Assertions.assertThat(counts).doesNotContainKey(List.of("c"));
+        Assertions.assertThat(counts.get(List.of("a"))).isBetween(19_000, 21_000);
+    }
+
+    @Test
+    void testSampleIsReproducible() {
+        var generator = newGenerator("[ptk][aeiou]([ptk][aeiou])*", 12);
+
+        Assertions.assertThat(generator.samples(100, new SplittableRandom(7)).collect(Collectors.toList()))
+                .isEqualTo(generator.samples(100, new SplittableRandom(7)).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSamplesInParallel() {
+        var automaton = parser.parse("[ptk][aeiou]([ptk][aeiou])*");
+        var generator = WordGenerator.of(automaton.compile(), 12);
+
+        var words = generator.samples(10_000, new SplittableRandom(7)).parallel().collect(Collectors.toList());
+
+        Assertions.assertThat(words).hasSize(10_000);
+        for (var word : words) {
+            Assertions.assertThat(automaton.isMatch(word)).isTrue();
+        }
+    }
+
+    @Test
+    void testSampleThrowsExceptionIfNoWordIsAccepted() {
+        var generator = newGenerator("aaaa", 3);
+
+        Assertions.assertThat(generator.countWords()).isEqualTo(BigInteger.ZERO);
+        Assertions.assertThatThrownBy(() -> generator.sample(new SplittableRandom()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testGeneratorForAutomatonNotDeterminizedWithinLimit() {
+        var generator = WordGenerator.of(CompiledAutomaton.of(parser.parse("(a|b)*a").toProgram(), 0), 3);
+
+        Assertions.assertThat(generator.countWords()).isEqualTo(BigInteger.valueOf(7));
+    }
+}
@@ -0,0 +1,72 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+class WordReaderTests {
+
+    private static List<List<String>> readAll(String text, Charset charset, int chunkSize) throws IOException {
+        var input = Channels.newChannel(new ByteArrayInputStream(text.getBytes(charset)));
+        var tokenizer = new SymbolTokenizer(Alphabet.getDefault(), Set.of("th"));
+        var words = new ArrayList<List<String>>();
+        try (var reader = new WordReader(input, charset, tokenizer, chunkSize)) {
+            int[] word;
+            while ((word = reader.readWord()) != null) {
+                words.add(Alphabet.getDefault().decode(word, 0, word.length));
+            }
+        }
+        return words;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 7, 64})
+    void testReadWordAcrossChunks(int chunkSize) throws IOException {
+        var words = readAll("tha\r\n\nabcdefghij\nth", StandardCharsets.UTF_8, chunkSize);
+
+        Assertions.assertThat(words).containsExactly(
+                List.of("th", "a"),
+                List.of(),
+                List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j"),
+                List.of("th")
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 6})
+    void testReadWordDecodesCharactersSplitBetweenChunks(int chunkSize) throws IOException {
+        var words = readAll("\u00e9\u00e9\u00e9\n\uD83D\uDE00a\n", StandardCharsets.UTF_8, chunkSize);
+
+        Assertions.assertThat(words).containsExactly(List.of("\u00e9", "\u00e9", "\u00e9"), List.of("\uD83D\uDE00", "a"));
+    }
+
+    @Test
+    void testReadWords() throws IOException {
+        var input = Channels.newChannel(new ByteArrayInputStream("a\nb\nc\n".getBytes(StandardCharsets.UTF_8)));
+        var batch = new int[2][];
+        try (var reader = new WordReader(input, StandardCharsets.UTF_8, new SymbolTokenizer(Alphabet.getDefault(), Set.of()), 4)) {
+            Assertions.assertThat(reader.readWords(batch)).isEqualTo(2);
+            Assertions.assertThat(reader.readWords(batch)).isEqualTo(1);
+            Assertions.assertThat(reader.readWords(batch)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void testReadWordThrowsExceptionForMalformedInput() {
+        var input = Channels.newChannel(new ByteArrayInputStream(new byte[]{'a', (byte) 0xff, '\n'}));
+        var reader = new WordReader(input, StandardCharsets.UTF_8, new SymbolTokenizer(Alphabet.getDefault(), Set.of()), 16);
+
+        Assertions.assertThatThrownBy(reader::readWord).isInstanceOf(CharacterCodingException.class);
+    }
+}
@@ -0,0 +1,29 @@
+package net.reusingthewheel.alg.soundchange;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class WordWriterTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 64})
+    void testWriteWordAcrossChunks(int chunkSize) throws IOException {
+        var alphabet = Alphabet.getDefault();
+        var output = new ByteArrayOutputStream();
+        try (var writer = new WordWriter(Channels.newChannel(output), StandardCharsets.UTF_8, alphabet, chunkSize)) {
+            writer.writeWord(alphabet.intern(List.of("th", "a", "\u00e9")));
+            writer.writeWord(new int[0]);
+            writer.writeWord(alphabet.intern(List.of("\uD83D\uDE00", "b", "c", "d", "e", "f")));
+        }
+
+        Assertions.assertThat(output.toString(StandardCharsets.UTF_8))
+                .isEqualTo("tha\u00e9\n\n\uD83D\uDE00bcdef\n");
+    }
+}